@@ -0,0 +1,141 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One long text converted sequentially and split across a pool. The text
+ * mixes dictionary phrases, single characters, digits and punctuation.
+ *
+ * <p>
+ * <code>parallel</code> splits the text into <code>partCount</code> parts on
+ * a pool of as many threads, the calling thread included, so it measures
+ * the speedup for that number of cores on a machine having them, and only
+ * the cost of splitting and joining on a smaller one.
+ * <code>parallelDefault</code> takes the part count of the public method,
+ * one part per available processor. E.g.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar ParallelConversionBenchmark -p partCount=8,16,32
+ * </pre>
+ *
+ * <p>
+ * The class lives in the package of pinyin4j to reach the package-private
+ * part count.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dfile.encoding=UTF-8")
+@State(Scope.Benchmark)
+public class ParallelConversionBenchmark {
+
+  @Param({"1000000"})
+  public int textLength;
+
+  @Param({"2", "8", "16", "32"})
+  public int partCount;
+
+  private String text;
+
+  private HanyuPinyinOutputFormat outputFormat;
+
+  private ExecutorService executor;
+
+  @Setup
+  public void setUp() throws IOException {
+    List<String> phrases = new ArrayList<String>();
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(
+            PinyinHelper.class.getResourceAsStream("/pinyindb/multi_pinyin.txt"), "UTF-8"));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        phrases.add(line.substring(0, line.indexOf(' ')));
+      }
+    } finally {
+      reader.close();
+    }
+
+    Random random = new Random(42);
+    StringBuilder builder = new StringBuilder(textLength + 16);
+    while (builder.length() < textLength) {
+      int kind = random.nextInt(20);
+      if (kind < 9) {
+        builder.append(phrases.get(random.nextInt(phrases.size())));
+      } else if (kind < 18) {
+        builder.append((char) ('一' + random.nextInt('龥' - '一' + 1)));
+      } else if (kind < 19) {
+        builder.append(random.nextInt(1000));
+      } else {
+        builder.append('，');
+      }
+    }
+    text = builder.substring(0, textLength);
+
+    outputFormat = new HanyuPinyinOutputFormat();
+    // the calling thread converts the first part
+    executor = Executors.newFixedThreadPool(partCount - 1);
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Benchmark
+  public String sequential() throws BadHanyuPinyinOutputFormatCombination {
+    return PinyinHelper.toHanYuPinyinString(text, outputFormat, " ", true);
+  }
+
+  @Benchmark
+  public String parallel() throws BadHanyuPinyinOutputFormatCombination, InterruptedException {
+    return PinyinHelper.toHanYuPinyinString(text, outputFormat, " ", true, executor, partCount);
+  }
+
+  @Benchmark
+  public String parallelDefault() throws BadHanyuPinyinOutputFormatCombination,
+      InterruptedException {
+    return PinyinHelper.toHanYuPinyinString(text, outputFormat, " ", true, executor);
+  }
+}
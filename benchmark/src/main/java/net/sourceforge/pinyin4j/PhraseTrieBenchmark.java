@@ -0,0 +1,152 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.pinyin4j.multipinyin.Trie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Longest-match phrase lookup over a text of 10,000 characters: the double
+ * array {@link PhraseTrie} against the former hex-string keyed {@link Trie}.
+ * The retained size of both structures is printed during setup.
+ *
+ * <p>
+ * The class lives in the package of pinyin4j to reach the package-private
+ * trie.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dfile.encoding=UTF-8")
+@State(Scope.Benchmark)
+public class PhraseTrieBenchmark {
+
+  private static final int TEXT_LENGTH = 10000;
+
+  private String text;
+
+  private Trie hexStringTrie;
+
+  private PhraseTrie doubleArrayTrie;
+
+  @Setup
+  public void setUp() throws IOException {
+    List<String> phrases = new ArrayList<String>();
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(
+            PinyinHelper.class.getResourceAsStream("/pinyindb/multi_pinyin.txt"), "UTF-8"));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        phrases.add(line.substring(0, line.indexOf(' ')));
+      }
+    } finally {
+      reader.close();
+    }
+
+    // half dictionary phrases, half single characters
+    Random random = new Random(42);
+    StringBuilder builder = new StringBuilder(TEXT_LENGTH + 16);
+    while (builder.length() < TEXT_LENGTH) {
+      if (random.nextBoolean()) {
+        builder.append(phrases.get(random.nextInt(phrases.size())));
+      } else {
+        builder.append((char) ('一' + random.nextInt('龥' - '一' + 1)));
+      }
+    }
+    text = builder.substring(0, TEXT_LENGTH);
+
+    hexStringTrie = new Trie();
+    hexStringTrie.loadMultiPinyin(PinyinHelper.class
+        .getResourceAsStream("/pinyindb/multi_pinyin.txt"));
+    doubleArrayTrie = ChineseToPinyinResource.getInstance().getPhraseTrie();
+
+    System.out.println();
+    System.out.println("hexStringTrie retained bytes:   "
+        + GraphLayout.parseInstance(hexStringTrie).totalSize());
+    System.out.println("doubleArrayTrie retained bytes: "
+        + GraphLayout.parseInstance(doubleArrayTrie).totalSize());
+  }
+
+  /**
+   * @return the sum of the end positions of the longest matches
+   */
+  @Benchmark
+  public long hexStringTrie() {
+    long matched = 0;
+    int end = text.length();
+    for (int i = 0; i < end; i++) {
+      Trie currentTrie = hexStringTrie.get(Integer.toHexString(text.charAt(i)).toUpperCase());
+      int success = i;
+      int current = i + 1;
+      if (currentTrie != null) currentTrie = currentTrie.getNextTire();
+      while (currentTrie != null && current < end) {
+        currentTrie = currentTrie.get(Integer.toHexString(text.charAt(current)).toUpperCase());
+        if (currentTrie != null) {
+          if (currentTrie.getPinyin() != null) success = current;
+          currentTrie = currentTrie.getNextTire();
+        }
+        current++;
+      }
+      matched += success;
+      i = success;
+    }
+    return matched;
+  }
+
+  /**
+   * @return the sum of the end positions of the longest matches
+   */
+  @Benchmark
+  public long doubleArrayTrie() {
+    long matched = 0;
+    int end = text.length();
+    for (int i = 0; i < end; i++) {
+      int currentNode = doubleArrayTrie.getChild(PhraseTrie.ROOT, text.charAt(i));
+      int success = i;
+      int current = i + 1;
+      while (currentNode != -1 && doubleArrayTrie.hasChildren(currentNode) && current < end) {
+        currentNode = doubleArrayTrie.getChild(currentNode, text.charAt(current));
+        if (currentNode != -1 && doubleArrayTrie.getValueLength(currentNode) > 0) success = current;
+        current++;
+      }
+      matched += success;
+      i = success;
+    }
+    return matched;
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j.benchmark;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A batch of product titles converted one call per title against one call
+ * for the whole batch, on the calling thread and split across a pool of one
+ * thread per core.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchConversionBenchmark {
+
+  @Param({"10000"})
+  public int batchSize;
+
+  private String[] titles;
+
+  private HanyuPinyinOutputFormat outputFormat;
+
+  private ExecutorService executor;
+
+  @Setup
+  public void setUp() {
+    titles = Corpus.titles(batchSize);
+
+    outputFormat = new HanyuPinyinOutputFormat();
+    outputFormat.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+    executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Benchmark
+  public String[] perTitle() throws BadHanyuPinyinOutputFormatCombination {
+    String[] results = new String[titles.length];
+    for (int i = 0; i < titles.length; i++) {
+      results[i] = PinyinHelper.toHanYuPinyinString(titles[i], outputFormat, " ", true);
+    }
+    return results;
+  }
+
+  @Benchmark
+  public String[] batch() throws BadHanyuPinyinOutputFormatCombination {
+    return PinyinHelper.toHanYuPinyinStrings(titles, outputFormat, " ", true);
+  }
+
+  @Benchmark
+  public String[] batchExecutor() throws BadHanyuPinyinOutputFormatCombination,
+      InterruptedException {
+    return PinyinHelper.toHanYuPinyinStrings(titles, outputFormat, " ", true, executor);
+  }
+}
@@ -0,0 +1,127 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Every single character entry point of {@link PinyinHelper}: Hanyu Pinyin
+ * with and without a format, each Romanization system, and the allocation
+ * free accessors. The characters are taken from the articles of the
+ * {@link Corpus}, so frequent characters are looked up more often. Run with
+ * <code>-prof gc</code> to see the allocation per lookup.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CharConversionBenchmark {
+
+  private static final int SAMPLE_SIZE = 4096;
+
+  private final char[] sample = new char[SAMPLE_SIZE];
+
+  private int next;
+
+  private HanyuPinyinOutputFormat outputFormat;
+
+  @Setup
+  public void setUp() {
+    char[] chars = Corpus.chineseCharacters(Corpus.get(Corpus.ARTICLES, 1)[0]);
+    System.arraycopy(chars, 0, sample, 0, SAMPLE_SIZE);
+
+    outputFormat = new HanyuPinyinOutputFormat();
+    outputFormat.setToneType(HanyuPinyinToneType.WITH_TONE_MARK);
+    outputFormat.setVCharType(HanyuPinyinVCharType.WITH_U_UNICODE);
+    outputFormat.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+
+    // load the tables outside of the measurement
+    PinyinHelper.toHanyuPinyinStringArray('中');
+    PinyinHelper.toWadeGilesPinyinStringArray('中');
+    PinyinHelper.toGwoyeuRomatzyhStringArray('中');
+  }
+
+  private char nextChar() {
+    return sample[next++ & (SAMPLE_SIZE - 1)];
+  }
+
+  @Benchmark
+  public String[] toHanyuPinyinStringArray() {
+    return PinyinHelper.toHanyuPinyinStringArray(nextChar());
+  }
+
+  @Benchmark
+  public String[] toHanyuPinyinStringArrayFormatted()
+      throws BadHanyuPinyinOutputFormatCombination {
+    return PinyinHelper.toHanyuPinyinStringArray(nextChar(), outputFormat);
+  }
+
+  @Benchmark
+  public String getHanyuPinyin() throws BadHanyuPinyinOutputFormatCombination {
+    return PinyinHelper.getHanyuPinyin(nextChar(), 0, outputFormat);
+  }
+
+  @Benchmark
+  public String getHanyuPinyinInitials() {
+    return PinyinHelper.getHanyuPinyinInitials(nextChar(), null);
+  }
+
+  @Benchmark
+  public String[] toTongyongPinyinStringArray() {
+    return PinyinHelper.toTongyongPinyinStringArray(nextChar());
+  }
+
+  @Benchmark
+  public String[] toWadeGilesPinyinStringArray() {
+    return PinyinHelper.toWadeGilesPinyinStringArray(nextChar());
+  }
+
+  @Benchmark
+  public String[] toMPS2PinyinStringArray() {
+    return PinyinHelper.toMPS2PinyinStringArray(nextChar());
+  }
+
+  @Benchmark
+  public String[] toYalePinyinStringArray() {
+    return PinyinHelper.toYalePinyinStringArray(nextChar());
+  }
+
+  @Benchmark
+  public String[] toGwoyeuRomatzyhStringArray() {
+    return PinyinHelper.toGwoyeuRomatzyhStringArray(nextChar());
+  }
+}
@@ -0,0 +1,106 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j.benchmark;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.multipinyin.Trie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single character lookup: the dense code point table behind
+ * {@link PinyinHelper#toHanyuPinyinStringArray(char)} against the former
+ * hex-string keyed {@link Trie} lookup, and the allocation free reading of
+ * the shared strings through {@link PinyinHelper#getHanyuPinyin(int, int)}.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CharLookupBenchmark {
+
+  private static final int SAMPLE_SIZE = 4096;
+
+  private final char[] sample = new char[SAMPLE_SIZE];
+
+  private int next;
+
+  private Trie hexStringTrie;
+
+  @Setup
+  public void setUp() throws IOException {
+    Random random = new Random(42);
+    for (int i = 0; i < SAMPLE_SIZE; i++) {
+      sample[i] = (char) ('一' + random.nextInt('龥' - '一' + 1));
+    }
+
+    hexStringTrie = new Trie();
+    hexStringTrie.load(PinyinHelper.class.getResourceAsStream("/pinyindb/unicode_to_hanyu_pinyin.txt"));
+
+    // trigger the loading of the table outside of the measurement
+    PinyinHelper.toHanyuPinyinStringArray('中');
+  }
+
+  private char nextChar() {
+    return sample[next++ & (SAMPLE_SIZE - 1)];
+  }
+
+  @Benchmark
+  public String[] denseTable() {
+    return PinyinHelper.toHanyuPinyinStringArray(nextChar());
+  }
+
+  /**
+   * @return the total length of the readings, so that none is optimized away
+   */
+  @Benchmark
+  public int sharedReadings() {
+    char ch = nextChar();
+    int length = 0;
+    for (int i = PinyinHelper.getHanyuPinyinCount(ch) - 1; i >= 0; i--) {
+      length += PinyinHelper.getHanyuPinyin(ch, i).length();
+    }
+    return length;
+  }
+
+  @Benchmark
+  public String[] hexStringTrie() {
+    String codepointHexStr = Integer.toHexString(nextChar()).toUpperCase();
+    Trie trie = hexStringTrie.get(codepointHexStr);
+    String record = null == trie ? null : trie.getPinyin();
+    if (null == record || "(none0)".equals(record) || !record.startsWith("(")
+        || !record.endsWith(")")) {
+      return null;
+    }
+    return record.substring(1, record.lastIndexOf(')')).split(",");
+  }
+}
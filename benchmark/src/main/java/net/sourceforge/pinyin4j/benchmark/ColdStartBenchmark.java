@@ -0,0 +1,72 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The first call in a fresh JVM, which loads the resources it needs: each
+ * measurement is a single call in its own fork. Run with
+ * <code>-prof gc</code> to see the memory allocated while loading.
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class ColdStartBenchmark {
+
+  /**
+   * All resources, as an application may load them while starting
+   */
+  @Benchmark
+  public void preload() {
+    PinyinHelper.preload();
+  }
+
+  @Benchmark
+  public String[] toHanyuPinyinStringArray() {
+    return PinyinHelper.toHanyuPinyinStringArray('中');
+  }
+
+  @Benchmark
+  public String toHanYuPinyinString() throws BadHanyuPinyinOutputFormatCombination {
+    return PinyinHelper.toHanYuPinyinString("重庆银行", HanyuPinyinOutputFormat.DEFAULT, " ", true);
+  }
+
+  @Benchmark
+  public String[] toWadeGilesPinyinStringArray() {
+    return PinyinHelper.toWadeGilesPinyinStringArray('中');
+  }
+
+  @Benchmark
+  public String[] toGwoyeuRomatzyhStringArray() {
+    return PinyinHelper.toGwoyeuRomatzyhStringArray('中');
+  }
+}
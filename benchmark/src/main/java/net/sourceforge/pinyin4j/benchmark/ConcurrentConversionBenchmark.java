@@ -0,0 +1,197 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j.benchmark;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.pinyin4j.LruPinyinCache;
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+import net.sourceforge.pinyin4j.multipinyin.Trie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of {@link PinyinHelper} on one thread and on one thread per
+ * core, all sharing the dictionary. Lookups take no lock, so the score on
+ * all cores should be the single threaded score times the number of cores.
+ * The public hex-string keyed {@link Trie}, which no longer synchronizes its
+ * lookups, is loaded once and measured the same way, and so are the lookups
+ * of a full {@link LruPinyinCache}, behind one lock and split into stripes.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar ConcurrentConversionBenchmark
+ * </pre>
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dfile.encoding=UTF-8")
+public class ConcurrentConversionBenchmark {
+
+  private static final int SAMPLE_SIZE = 4096;
+
+  private static final int TEXT_LENGTH = 32;
+
+  /**
+   * Input shared by all threads
+   */
+  @State(Scope.Benchmark)
+  public static class Shared {
+    final char[] sample = new char[SAMPLE_SIZE];
+
+    final String[] texts = new String[SAMPLE_SIZE];
+
+    Trie hexStringTrie;
+
+    final LruPinyinCache singleLockCache = new LruPinyinCache(SAMPLE_SIZE, 1);
+
+    final LruPinyinCache stripedCache = new LruPinyinCache(SAMPLE_SIZE);
+
+    @Setup
+    public void setUp() throws IOException {
+      Random random = new Random(42);
+      for (int i = 0; i < SAMPLE_SIZE; i++) {
+        sample[i] = (char) ('一' + random.nextInt('龥' - '一' + 1));
+      }
+      for (int i = 0; i < SAMPLE_SIZE; i++) {
+        StringBuilder text = new StringBuilder(TEXT_LENGTH);
+        for (int j = 0; j < TEXT_LENGTH; j++) {
+          text.append(sample[random.nextInt(SAMPLE_SIZE)]);
+        }
+        texts[i] = text.toString();
+        singleLockCache.put(texts[i], texts[i]);
+        stripedCache.put(texts[i], texts[i]);
+      }
+
+      hexStringTrie = new Trie();
+      hexStringTrie.load(PinyinHelper.class
+          .getResourceAsStream("/pinyindb/unicode_to_hanyu_pinyin.txt"));
+
+      // trigger the loading of the dictionary outside of the measurement
+      PinyinHelper.toHanyuPinyinStringArray('中');
+    }
+  }
+
+  /**
+   * Position of every thread in the shared input, threads start apart
+   */
+  @State(Scope.Thread)
+  public static class Cursor {
+    int next = new Random().nextInt(SAMPLE_SIZE);
+
+    int next() {
+      return next++ & (SAMPLE_SIZE - 1);
+    }
+  }
+
+  private static String[] charArray(Shared shared, Cursor cursor) {
+    return PinyinHelper.toHanyuPinyinStringArray(shared.sample[cursor.next()]);
+  }
+
+  private static String string(Shared shared, Cursor cursor)
+      throws BadHanyuPinyinOutputFormatCombination {
+    return PinyinHelper.toHanYuPinyinString(shared.texts[cursor.next()],
+        HanyuPinyinOutputFormat.DEFAULT, " ", true);
+  }
+
+  private static String hexString(Shared shared, Cursor cursor) {
+    Trie trie = shared.hexStringTrie.get(Integer.toHexString(shared.sample[cursor.next()])
+        .toUpperCase());
+    return null == trie ? null : trie.getPinyin();
+  }
+
+  private static String cached(LruPinyinCache cache, Shared shared, Cursor cursor) {
+    return cache.get(shared.texts[cursor.next()]);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public String[] charArray1(Shared shared, Cursor cursor) {
+    return charArray(shared, cursor);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public String[] charArrayAllCores(Shared shared, Cursor cursor) {
+    return charArray(shared, cursor);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public String string1(Shared shared, Cursor cursor)
+      throws BadHanyuPinyinOutputFormatCombination {
+    return string(shared, cursor);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public String stringAllCores(Shared shared, Cursor cursor)
+      throws BadHanyuPinyinOutputFormatCombination {
+    return string(shared, cursor);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public String hexStringTrie1(Shared shared, Cursor cursor) {
+    return hexString(shared, cursor);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public String hexStringTrieAllCores(Shared shared, Cursor cursor) {
+    return hexString(shared, cursor);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public String singleLockCache1(Shared shared, Cursor cursor) {
+    return cached(shared.singleLockCache, shared, cursor);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public String singleLockCacheAllCores(Shared shared, Cursor cursor) {
+    return cached(shared.singleLockCache, shared, cursor);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public String stripedCache1(Shared shared, Cursor cursor) {
+    return cached(shared.stripedCache, shared, cursor);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public String stripedCacheAllCores(Shared shared, Cursor cursor) {
+    return cached(shared.stripedCache, shared, cursor);
+  }
+}
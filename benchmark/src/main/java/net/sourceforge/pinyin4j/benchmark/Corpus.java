@@ -0,0 +1,140 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j.benchmark;
+
+import java.util.Random;
+
+/**
+ * Realistic inputs of the conversions, generated with a fixed seed so that
+ * runs are comparable: short names of people and places, product titles
+ * mixing Chinese words with Latin tokens, and long articles with
+ * punctuation.
+ *
+ */
+final class Corpus {
+  static final String NAMES = "names";
+
+  static final String TITLES = "titles";
+
+  static final String ARTICLES = "articles";
+
+  /**
+   * Common surnames, some of them polyphonic
+   */
+  private static final String SURNAMES = "王李张刘陈杨黄赵吴周徐孙马朱胡郭何高林罗郑梁谢宋唐许韩冯邓曾彭单解区仇";
+
+  private static final String GIVEN_NAMES = "伟芳娜秀英敏静丽强磊军洋勇艳杰娟涛明超秀兰霞平刚桂英华建国志红文斌乐长";
+
+  private static final String[] PLACES = {"北京", "上海", "重庆", "广州", "深圳", "长沙", "厦门", "西安",
+      "成都", "石家庄", "呼和浩特", "乌鲁木齐", "哈尔滨", "蚌埠", "六安", "乐山", "东莞", "长春"};
+
+  private static final String[] PRODUCT_WORDS = {"苹果", "手机", "官方", "旗舰店", "正品", "新款", "男士",
+      "女士", "运动鞋", "保温杯", "不锈钢", "充电器", "无线", "蓝牙", "耳机", "家用", "大容量", "包邮", "夏季",
+      "长袖"};
+
+  private static final String[] PRODUCT_TOKENS = {"iPhone", "5G", "128GB", "2024", "XL", "USB-C",
+      " ", "/", "【", "】"};
+
+  private static final String[] ARTICLE_WORDS = {"我们", "经济", "发展", "银行", "行长", "表示", "今年",
+      "市场", "重要", "重新", "一个", "问题", "的", "了", "在", "是", "和", "也", "都", "要", "会", "还",
+      "长期", "增长", "政策", "企业", "中国", "社会", "数据", "调查", "研究", "人民", "教育", "音乐", "觉得",
+      "朝阳", "行业", "传统", "地方", "参加", "会议", "记者", "城市", "生活", "公司", "提高", "服务", "质量"};
+
+  private static final String[] ARTICLE_TOKENS = {"，", "，", "，", "。", "；", "“", "”", "2024年",
+      "GDP", "3.5%"};
+
+  private Corpus() {
+  }
+
+  /**
+   * @param kind
+   *            {@link #NAMES}, {@link #TITLES} or {@link #ARTICLES}
+   * @param count
+   *            the number of texts, articles are 10,000 characters long
+   */
+  static String[] get(String kind, int count) {
+    if (NAMES.equals(kind)) {
+      return names(count);
+    } else if (TITLES.equals(kind)) {
+      return titles(count);
+    } else if (ARTICLES.equals(kind)) {
+      String[] articles = new String[count];
+      Random random = new Random(42);
+      for (int i = 0; i < count; i++) {
+        articles[i] = article(random, 10000);
+      }
+      return articles;
+    }
+    throw new IllegalArgumentException("unknown corpus: " + kind);
+  }
+
+  static String[] names(int count) {
+    Random random = new Random(42);
+    String[] names = new String[count];
+    for (int i = 0; i < count; i++) {
+      if (random.nextInt(4) == 0) {
+        names[i] = PLACES[random.nextInt(PLACES.length)];
+      } else {
+        StringBuilder name = new StringBuilder(3);
+        name.append(SURNAMES.charAt(random.nextInt(SURNAMES.length())));
+        for (int j = 1 + random.nextInt(2); j > 0; j--) {
+          name.append(GIVEN_NAMES.charAt(random.nextInt(GIVEN_NAMES.length())));
+        }
+        names[i] = name.toString();
+      }
+    }
+    return names;
+  }
+
+  static String[] titles(int count) {
+    Random random = new Random(42);
+    String[] titles = new String[count];
+    for (int i = 0; i < count; i++) {
+      StringBuilder title = new StringBuilder();
+      int words = 4 + random.nextInt(8);
+      for (int j = 0; j < words; j++) {
+        title.append(random.nextInt(4) == 0 ? PRODUCT_TOKENS[random.nextInt(PRODUCT_TOKENS.length)]
+            : PRODUCT_WORDS[random.nextInt(PRODUCT_WORDS.length)]);
+      }
+      titles[i] = title.toString();
+    }
+    return titles;
+  }
+
+  static String article(Random random, int length) {
+    StringBuilder article = new StringBuilder(length + 16);
+    while (article.length() < length) {
+      article.append(random.nextInt(6) == 0 ? ARTICLE_TOKENS[random.nextInt(ARTICLE_TOKENS.length)]
+          : ARTICLE_WORDS[random.nextInt(ARTICLE_WORDS.length)]);
+    }
+    return article.substring(0, length);
+  }
+
+  /**
+   * @return the Chinese characters of a text in the order they occur, so that
+   *         frequent characters are sampled more often
+   */
+  static char[] chineseCharacters(String text) {
+    StringBuilder chars = new StringBuilder(text.length());
+    for (int i = 0; i < text.length(); i++) {
+      char ch = text.charAt(i);
+      if (ch >= '一' && ch <= '龥') {
+        chars.append(ch);
+      }
+    }
+    return chars.toString().toCharArray();
+  }
+}
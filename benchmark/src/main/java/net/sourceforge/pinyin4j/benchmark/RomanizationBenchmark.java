@@ -0,0 +1,139 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hp.hpl.sparta.Document;
+import com.hp.hpl.sparta.Element;
+import com.hp.hpl.sparta.Parser;
+
+/**
+ * Per character cost of translating Hanyu Pinyin into Wade-Giles and Gwoyeu
+ * Romatzyh: the compiled tables behind {@link PinyinHelper} against the former
+ * XPath queries over the mapping DOMs.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RomanizationBenchmark {
+
+  private static final int SAMPLE_SIZE = 4096;
+
+  private static final String[] GWOYEU_TONES = new String[] {"_I", "_II", "_III", "_IV", "_V"};
+
+  private final char[] sample = new char[SAMPLE_SIZE];
+
+  private int next;
+
+  private Document pinyinMappingDoc;
+
+  private Document gwoyeuMappingDoc;
+
+  @Setup
+  public void setUp() throws Exception {
+    Random random = new Random(42);
+    for (int i = 0; i < SAMPLE_SIZE; i++) {
+      sample[i] = (char) ('一' + random.nextInt('龥' - '一' + 1));
+    }
+
+    pinyinMappingDoc = parse("/pinyindb/pinyin_mapping.xml");
+    gwoyeuMappingDoc = parse("/pinyindb/pinyin_gwoyeu_mapping.xml");
+
+    // trigger the loading of the tables outside of the measurement
+    PinyinHelper.toWadeGilesPinyinStringArray('中');
+    PinyinHelper.toGwoyeuRomatzyhStringArray('中');
+  }
+
+  private static Document parse(String resourceName) throws Exception {
+    InputStream in = new BufferedInputStream(PinyinHelper.class.getResourceAsStream(resourceName));
+    try {
+      return Parser.parse("", in);
+    } finally {
+      in.close();
+    }
+  }
+
+  private char nextChar() {
+    return sample[next++ & (SAMPLE_SIZE - 1)];
+  }
+
+  @Benchmark
+  public String[] wadeGilesTable() {
+    return PinyinHelper.toWadeGilesPinyinStringArray(nextChar());
+  }
+
+  @Benchmark
+  public String[] wadeGilesXPath() throws Exception {
+    String[] hanyu = PinyinHelper.toHanyuPinyinStringArray(nextChar());
+    if (null == hanyu) {
+      return null;
+    }
+    String[] result = new String[hanyu.length];
+    for (int i = 0; i < hanyu.length; i++) {
+      String pinyin = hanyu[i].substring(0, hanyu[i].length() - 1);
+      Element node = pinyinMappingDoc.xpathSelectElement("//Hanyu[text()='" + pinyin + "']");
+      if (null != node) {
+        result[i] =
+            node.xpathSelectString("../Wade/text()") + hanyu[i].substring(hanyu[i].length() - 1);
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  public String[] gwoyeuTable() {
+    return PinyinHelper.toGwoyeuRomatzyhStringArray(nextChar());
+  }
+
+  @Benchmark
+  public String[] gwoyeuXPath() throws Exception {
+    String[] hanyu = PinyinHelper.toHanyuPinyinStringArray(nextChar());
+    if (null == hanyu) {
+      return null;
+    }
+    String[] result = new String[hanyu.length];
+    for (int i = 0; i < hanyu.length; i++) {
+      String pinyin = hanyu[i].substring(0, hanyu[i].length() - 1);
+      int tone = Integer.parseInt(hanyu[i].substring(hanyu[i].length() - 1));
+      Element node = gwoyeuMappingDoc.xpathSelectElement("//Hanyu[text()='" + pinyin + "']");
+      if (null != node) {
+        result[i] = node.xpathSelectString("../Gwoyeu" + GWOYEU_TONES[tone - 1] + "/text()");
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,165 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j.benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.pinyin4j.LruPinyinCache;
+import net.sourceforge.pinyin4j.PinyinConverter;
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.PinyinLattice;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Every string entry point of {@link PinyinHelper} over each {@link Corpus}:
+ * one text per invocation, cycling through 1,000 names or titles, or 10
+ * articles of 10,000 characters. Run with <code>-prof gc</code> to see the
+ * allocation per conversion next to its time.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TextConversionBenchmark {
+
+  @Param({Corpus.NAMES, Corpus.TITLES, Corpus.ARTICLES})
+  public String corpus;
+
+  private String[] texts;
+
+  private int next;
+
+  private HanyuPinyinOutputFormat outputFormat;
+
+  private final StringBuilder buffer = new StringBuilder();
+
+  @Setup
+  public void setUp() throws BadHanyuPinyinOutputFormatCombination {
+    texts = Corpus.get(corpus, Corpus.ARTICLES.equals(corpus) ? 10 : 1000);
+    outputFormat = new HanyuPinyinOutputFormat();
+    // load the dictionary outside of the measurement
+    PinyinHelper.toHanYuPinyinString(texts[0], outputFormat, " ", true);
+  }
+
+  private String nextText() {
+    String text = texts[next];
+    next = next + 1 == texts.length ? 0 : next + 1;
+    return text;
+  }
+
+  /**
+   * A cache large enough for all texts of the corpus, set for the benchmark
+   * using it only
+   */
+  @State(Scope.Benchmark)
+  public static class CacheState {
+    LruPinyinCache cache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      cache = new LruPinyinCache(1000);
+      PinyinHelper.setCache(cache);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      PinyinHelper.setCache(null);
+    }
+  }
+
+  @Benchmark
+  public String toHanYuPinyinString() throws BadHanyuPinyinOutputFormatCombination {
+    return PinyinHelper.toHanYuPinyinString(nextText(), outputFormat, " ", true);
+  }
+
+  @Benchmark
+  public String toHanYuPinyinStringCached(CacheState cacheState)
+      throws BadHanyuPinyinOutputFormatCombination {
+    return PinyinHelper.toHanYuPinyinString(nextText(), outputFormat, " ", true);
+  }
+
+  @Benchmark
+  public int toHanYuPinyinStringRange() throws BadHanyuPinyinOutputFormatCombination {
+    String text = nextText();
+    buffer.setLength(0);
+    PinyinHelper.toHanYuPinyinString(text, 0, text.length(), outputFormat, " ", true, buffer);
+    return buffer.length();
+  }
+
+  @Benchmark
+  public int toHanYuPinyinStringStream() throws BadHanyuPinyinOutputFormatCombination,
+      IOException {
+    StringWriter out = new StringWriter();
+    PinyinHelper.toHanYuPinyinString(new StringReader(nextText()), outputFormat, " ", true, out);
+    return out.getBuffer().length();
+  }
+
+  @Benchmark
+  public int converter() throws BadHanyuPinyinOutputFormatCombination, IOException {
+    String text = nextText();
+    buffer.setLength(0);
+    PinyinConverter converter = new PinyinConverter(outputFormat, " ", true, buffer);
+    // chunks as they may arrive from the network
+    for (int i = 0; i < text.length(); i += 256) {
+      converter.feed(text.subSequence(i, Math.min(text.length(), i + 256)));
+    }
+    converter.finish();
+    return buffer.length();
+  }
+
+  @Benchmark
+  public String toHanYuPinyinInitials() {
+    return PinyinHelper.toHanYuPinyinInitials(nextText(), null, true);
+  }
+
+  @Benchmark
+  public void toHanYuPinyinReadings(Blackhole blackhole)
+      throws BadHanyuPinyinOutputFormatCombination {
+    Iterator<String> readings =
+        PinyinHelper.toHanYuPinyinReadings(nextText(), outputFormat, " ", true, 16);
+    while (readings.hasNext()) {
+      blackhole.consume(readings.next());
+    }
+  }
+
+  @Benchmark
+  public PinyinLattice toHanYuPinyinLattice() throws BadHanyuPinyinOutputFormatCombination {
+    return PinyinHelper.toHanYuPinyinLattice(nextText(), outputFormat);
+  }
+}
@@ -18,10 +18,18 @@
  */
 package net.sourceforge.pinyin4j;
 
-import net.sourceforge.pinyin4j.multipinyin.Trie;
-
-import java.io.FileNotFoundException;
+import net.sourceforge.pinyin4j.multipinyin.MultiPinyinConfig;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
 
 /**
  * Manage all external resources required in PinyinHelper class.
@@ -30,122 +38,251 @@ import java.io.IOException;
  */
 class ChineseToPinyinResource {
     /**
-     * A hash table contains <Unicode, HanyuPinyin> pairs
+     * The compiled form of unicode_to_hanyu_pinyin.txt and multi_pinyin.txt
      */
-    private Trie unicodeToHanyuPinyinTable = null;
+    static final String DICTIONARY = "/pinyindb/pinyin_dictionary.dat";
 
     /**
-     * @param unicodeToHanyuPinyinTable The unicodeToHanyuPinyinTable to set.
+     * The dictionary of the library without the user defined phrases; null if
+     * it can not be loaded
      */
-    private void setUnicodeToHanyuPinyinTable(Trie unicodeToHanyuPinyinTable) {
-        this.unicodeToHanyuPinyinTable = unicodeToHanyuPinyinTable;
+    private final PinyinDictionary baseDictionary;
+
+    /**
+     * A dictionary contains <Unicode, HanyuPinyin> and <Phrase, HanyuPinyin>
+     * pairs. It is immutable and published through this volatile field, so
+     * lookups from any thread read it without locking, and a reload of the
+     * user defined phrases replaces it as a whole: a conversion reading it
+     * once sees either the previous or the new phrases, never a mix.
+     */
+    private volatile PinyinDictionary dictionary;
+
+    /**
+     * Number of reloads of the user defined phrases, written after
+     * {@link #dictionary}
+     */
+    private volatile int generation;
+
+    /**
+     * @return Returns the dictionary.
+     */
+    PinyinDictionary getDictionary() {
+        return dictionary;
     }
 
     /**
-     * @return Returns the unicodeToHanyuPinyinTable.
+     * @return Returns the number of reloads of the user defined phrases, which
+     * changes after the dictionary does; read it before the dictionary to
+     * tell whether a result may be stale
      */
-    Trie getUnicodeToHanyuPinyinTable() {
-        return unicodeToHanyuPinyinTable;
+    int getGeneration() {
+        return generation;
     }
 
     /**
-     * Private constructor as part of the singleton pattern.
+     * @return Returns the <Unicode, HanyuPinyin> table of the dictionary.
      */
-    private ChineseToPinyinResource() {
-        initializeResource();
+    UnicodeToHanyuPinyinTable getUnicodeToHanyuPinyinTable() {
+        return dictionary.getUnicodeToHanyuPinyinTable();
     }
 
     /**
-     * Initialize a hash-table contains <Unicode, HanyuPinyin> pairs
+     * @return Returns the <Phrase, HanyuPinyin> trie of the dictionary.
      */
-    private void initializeResource() {
-        try {
-            final String resourceName = "/pinyindb/unicode_to_hanyu_pinyin.txt";
-            final String resourceMultiName = "/pinyindb/multi_pinyin.txt";
+    PhraseTrie getPhraseTrie() {
+        return dictionary.getPhraseTrie();
+    }
 
-            setUnicodeToHanyuPinyinTable(new Trie());
-            getUnicodeToHanyuPinyinTable().load(ResourceHelper.getResourceInputStream(resourceName));
+    /**
+     * Private constructor as part of the singleton pattern.
+     */
+    private ChineseToPinyinResource() {
+        long startTime = System.nanoTime();
+        baseDictionary = loadDictionary();
+        PinyinDictionary dictionary = baseDictionary;
+        if (baseDictionary != null) {
+            try {
+                dictionary = addUserPhrases(baseDictionary);
+            } catch (IOException ex) {
+                // go on without the user defined phrases
+                ex.printStackTrace();
+            }
+        }
+        this.dictionary = dictionary;
+        PinyinHelper.getMetrics().resourceLoaded(DICTIONARY, System.nanoTime() - startTime);
+    }
 
-            getUnicodeToHanyuPinyinTable().loadMultiPinyin(ResourceHelper.getResourceInputStream(resourceMultiName));
+    /**
+     * Rebuild the dictionary with the user defined phrases read again from
+     * {@link MultiPinyinConfig#multiPinyinPath}, which may have been changed
+     * or set to null, and publish it. Conversions are not blocked: those
+     * running go on with the previous dictionary. Concurrent reloads are
+     * applied one after the other.
+     *
+     * @throws IOException if the user defined phrases can not be read; the
+     *                     previous dictionary is kept
+     */
+    synchronized void reloadUserPhrases() throws IOException {
+        if (baseDictionary == null) {
+            throw new IOException("Hanyu Pinyin dictionary can not be loaded");
+        }
+        long startTime = System.nanoTime();
+        dictionary = addUserPhrases(baseDictionary);
+        // only written here, under the lock
+        generation++;
+        String path = MultiPinyinConfig.multiPinyinPath;
+        PinyinHelper.getMetrics().resourceLoaded(path == null ? DICTIONARY : path,
+                System.nanoTime() - startTime);
+    }
 
-            getUnicodeToHanyuPinyinTable().loadMultiPinyinExtend();
+    /**
+     * Map or load the dictionary compiled at build time, or compile it from
+     * the text resources if it is not available
+     *
+     * @return the dictionary; null if it can not be loaded
+     */
+    private static PinyinDictionary loadDictionary() {
+        try {
+            PinyinDictionary dictionary = null;
+            if (MappedDictionaryConfig.path != null) {
+                try {
+                    dictionary = mapDictionary(new File(MappedDictionaryConfig.path));
+                } catch (IOException ex) {
+                    // fall back to the heap
+                    ex.printStackTrace();
+                }
+            }
+
+            if (dictionary == null) {
+                if (ResourceHelper.hasResource(DICTIONARY)) {
+                    dictionary = PinyinDictionary.read(ResourceHelper.getResourceInputStream(DICTIONARY));
+                } else {
+                    dictionary = compileDictionary();
+                }
+            }
+
+            return dictionary;
 
-        } catch (FileNotFoundException ex) {
-            ex.printStackTrace();
         } catch (IOException ex) {
             ex.printStackTrace();
         }
-    }
-
-    Trie getHanyuPinyinTrie(char ch) {
-
-        String codepointHexStr = Integer.toHexString((int) ch).toUpperCase();
-
-        // fetch from hashtable
-        return getUnicodeToHanyuPinyinTable().get(codepointHexStr);
+        return null;
     }
 
     /**
-     * Get the unformatted Hanyu Pinyin representations of the given Chinese
-     * character in array format.
+     * Add the phrases of the file at {@link MultiPinyinConfig#multiPinyinPath}
+     * to a copy of the given dictionary
      *
-     * @param ch given Chinese character in Unicode
-     * @return The Hanyu Pinyin strings of the given Chinese character in array
-     * format; return null if there is no corresponding Pinyin string.
+     * @param dictionary the dictionary of the library, which is not modified
+     * @return the dictionary with the user defined phrases; the given one if
+     * there is no such file
+     * @throws IOException if the file can not be read
      */
-    String[] getHanyuPinyinStringArray(char ch) {
-        String pinyinRecord = getHanyuPinyinRecordFromChar(ch);
-        return parsePinyinString(pinyinRecord);
+    private static PinyinDictionary addUserPhrases(PinyinDictionary dictionary) throws IOException {
+        String path = MultiPinyinConfig.multiPinyinPath;
+        if (path != null) {
+            File userMultiPinyinFile = new File(path);
+            if (userMultiPinyinFile.exists()) {
+                // user files have always been read in the platform encoding
+                return new PinyinDictionary.Builder(dictionary).loadMultiPinyin(
+                        new FileInputStream(userMultiPinyinFile), Charset.defaultCharset().name()).build();
+            }
+        }
+        return dictionary;
     }
 
-    String[] parsePinyinString(String pinyinRecord) {
-
-        if (null != pinyinRecord) {
-            int indexOfLeftBracket = pinyinRecord.indexOf(Field.LEFT_BRACKET);
-            int indexOfRightBracket = pinyinRecord.lastIndexOf(Field.RIGHT_BRACKET);
-
-            String stripedString =
-                    pinyinRecord.substring(indexOfLeftBracket + Field.LEFT_BRACKET.length(),
-                            indexOfRightBracket);
+    /**
+     * Map the compiled dictionary from a file, which is created first if it
+     * does not exist, or written again if it holds another dictionary than the
+     * one bundled with pinyin4j, e.g. one of a previous release
+     *
+     * @param file the file to map
+     * @return the dictionary
+     * @throws IOException
+     */
+    static PinyinDictionary mapDictionary(File file) throws IOException {
+        byte[] compiled = null;
+        int checksum;
+        if (ResourceHelper.hasResource(DICTIONARY)) {
+            checksum = PinyinDictionary.readChecksum(ResourceHelper.getResourceInputStream(DICTIONARY));
+        } else {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            compileDictionary().write(out);
+            compiled = out.toByteArray();
+            checksum = PinyinDictionary.readChecksum(new ByteArrayInputStream(compiled));
+        }
 
-            return stripedString.split(Field.COMMA);
+        if (file.exists()) {
+            try {
+                return PinyinDictionary.map(file, checksum);
+            } catch (IOException e) {
+                // stale or damaged, write it again
+            }
+        }
 
-        } else
-            return null; // no record found or mal-formatted record
+        // write a temporary file and rename it, concurrent processes may do the same
+        File directory = file.getAbsoluteFile().getParentFile();
+        directory.mkdirs();
+        File temporaryFile = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(temporaryFile));
+            try {
+                if (compiled == null) {
+                    InputStream in = ResourceHelper.getResourceInputStream(DICTIONARY);
+                    try {
+                        byte[] buffer = new byte[8192];
+                        int length;
+                        while ((length = in.read(buffer)) != -1) {
+                            out.write(buffer, 0, length);
+                        }
+                    } finally {
+                        in.close();
+                    }
+                } else {
+                    out.write(compiled);
+                }
+            } finally {
+                out.close();
+            }
+            // some platforms do not rename over an existing file
+            if (!temporaryFile.renameTo(file) && !(file.delete() && temporaryFile.renameTo(file))
+                    && !file.exists()) {
+                throw new IOException("can not create " + file);
+            }
+        } finally {
+            temporaryFile.delete();
+        }
+        return PinyinDictionary.map(file, checksum);
     }
 
     /**
-     * @param record given record string of Hanyu Pinyin
-     * @return return true if record is not null and record is not "none0" and
-     * record is not mal-formatted, else return false
+     * Compile the dictionary from unicode_to_hanyu_pinyin.txt and
+     * multi_pinyin.txt
+     *
+     * @return the dictionary
+     * @throws IOException
      */
-    private boolean isValidRecord(String record) {
-        final String noneStr = "(none0)";
-
-        return (null != record) && !record.equals(noneStr) && record.startsWith(Field.LEFT_BRACKET)
-                && record.endsWith(Field.RIGHT_BRACKET);
+    static PinyinDictionary compileDictionary() throws IOException {
+        final String resourceName = "/pinyindb/unicode_to_hanyu_pinyin.txt";
+        final String resourceMultiName = "/pinyindb/multi_pinyin.txt";
+
+        return new PinyinDictionary.Builder()
+                .loadUnicodeToHanyuPinyin(ResourceHelper.getResourceInputStream(resourceName))
+                .loadMultiPinyin(ResourceHelper.getResourceInputStream(resourceMultiName), "UTF-8")
+                .build();
     }
 
     /**
-     * @param ch given Chinese character in Unicode
-     * @return corresponding Hanyu Pinyin Record in Properties file; null if no
-     * record found
+     * Get the unformatted Hanyu Pinyin representations of the given Chinese
+     * character in array format.
+     *
+     * @param codePoint code point of the given Chinese character, which may be
+     *                  in a supplementary plane
+     * @return The Hanyu Pinyin strings of the given Chinese character in array
+     * format; return null if there is no corresponding Pinyin string.
      */
-    private String getHanyuPinyinRecordFromChar(char ch) {
-        // convert Chinese character to code point (integer)
-        // please refer to http://www.unicode.org/glossary/#code_point
-        // Another reference: http://en.wikipedia.org/wiki/Unicode
-        int codePointOfChar = ch;
-
-        String codepointHexStr = Integer.toHexString(codePointOfChar).toUpperCase();
-
-        // fetch from hashtable
-        Trie trie = getUnicodeToHanyuPinyinTable().get(codepointHexStr);
-        String foundRecord = null;
-        if (trie != null)
-            foundRecord = trie.getPinyin();
-
-        return isValidRecord(foundRecord) ? foundRecord : null;
+    String[] getHanyuPinyinStringArray(int codePoint) {
+        return getUnicodeToHanyuPinyinTable().getHanyuPinyinStringArray(codePoint);
     }
 
     /**
@@ -163,17 +300,4 @@ class ChineseToPinyinResource {
     private static class ChineseToPinyinResourceHolder {
         static final ChineseToPinyinResource theInstance = new ChineseToPinyinResource();
     }
-
-    /**
-     * A class encloses common string constants used in Properties files
-     *
-     * @author Li Min (xmlerlimin@gmail.com)
-     */
-    class Field {
-        static final String LEFT_BRACKET = "(";
-
-        static final String RIGHT_BRACKET = ")";
-
-        static final String COMMA = ",";
-    }
 }
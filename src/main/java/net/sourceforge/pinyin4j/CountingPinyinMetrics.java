@@ -0,0 +1,206 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link PinyinMetrics} counting the measurements. Each counter is striped
+ * over several cells, which threads update by their id, so converting
+ * threads seldom contend for a cell; the sum is taken when read.
+ *
+ * <pre>
+ * CountingPinyinMetrics metrics = new CountingPinyinMetrics();
+ * PinyinHelper.setMetrics(metrics);
+ * ...
+ * // export metrics.getCharacterCount() and the other counters periodically
+ * </pre>
+ *
+ */
+public class CountingPinyinMetrics implements PinyinMetrics {
+  /**
+   * Phrases of this length or longer are counted together
+   */
+  public static final int MAX_PHRASE_LENGTH = 16;
+
+  private final Counter characters = new Counter();
+
+  private final Counter conversions = new Counter();
+
+  private final Counter conversionNanos = new Counter();
+
+  private final Counter[] phrases = new Counter[MAX_PHRASE_LENGTH + 1];
+
+  private final Counter unknownCharacters = new Counter();
+
+  private final Counter cacheHits = new Counter();
+
+  private final Counter cacheMisses = new Counter();
+
+  private final Map<String, Long> resourceNanos = new HashMap<String, Long>();
+
+  private final Counter resourceFailures = new Counter();
+
+  public CountingPinyinMetrics() {
+    for (int i = 0; i < phrases.length; i++) {
+      phrases[i] = new Counter();
+    }
+  }
+
+  public void converted(int characters, long nanos) {
+    this.characters.add(characters);
+    conversions.add(1);
+    conversionNanos.add(nanos);
+  }
+
+  public void phraseMatched(int length) {
+    phrases[Math.min(length, MAX_PHRASE_LENGTH)].add(1);
+  }
+
+  public void unknownCharacters(int count) {
+    unknownCharacters.add(count);
+  }
+
+  public void cacheHit() {
+    cacheHits.add(1);
+  }
+
+  public void cacheMiss() {
+    cacheMisses.add(1);
+  }
+
+  public void resourceLoaded(String resource, long nanos) {
+    synchronized (resourceNanos) {
+      resourceNanos.put(resource, nanos);
+    }
+  }
+
+  public void resourceFailed(String resource, Throwable cause) {
+    resourceFailures.add(1);
+  }
+
+  /**
+   * @return the number of characters converted
+   */
+  public long getCharacterCount() {
+    return characters.sum();
+  }
+
+  /**
+   * @return the number of conversions; a text converted in parts counts
+   *         once per part
+   */
+  public long getConversionCount() {
+    return conversions.sum();
+  }
+
+  /**
+   * @return the total time of the conversions
+   */
+  public long getConversionNanos() {
+    return conversionNanos.sum();
+  }
+
+  /**
+   * @param length
+   *            the number of characters of the phrases, at least 2;
+   *            {@link #MAX_PHRASE_LENGTH} counts the longer ones too
+   * @return the number of phrases of that length matched
+   */
+  public long getPhraseCount(int length) {
+    return phrases[Math.min(length, MAX_PHRASE_LENGTH)].sum();
+  }
+
+  /**
+   * @return the number of phrases matched
+   */
+  public long getPhraseCount() {
+    long count = 0;
+    for (Counter phrase : phrases) {
+      count += phrase.sum();
+    }
+    return count;
+  }
+
+  /**
+   * @return the number of characters without Hanyu Pinyin
+   */
+  public long getUnknownCharacterCount() {
+    return unknownCharacters.sum();
+  }
+
+  public long getCacheHitCount() {
+    return cacheHits.sum();
+  }
+
+  public long getCacheMissCount() {
+    return cacheMisses.sum();
+  }
+
+  /**
+   * @return the loading time of each resource loaded so far, by path
+   */
+  public Map<String, Long> getResourceNanos() {
+    synchronized (resourceNanos) {
+      return Collections.unmodifiableMap(new HashMap<String, Long>(resourceNanos));
+    }
+  }
+
+  /**
+   * @return the number of failed reloads of the user defined phrases
+   */
+  public long getResourceFailureCount() {
+    return resourceFailures.sum();
+  }
+
+  /**
+   * A counter striped over cells a cache line apart
+   */
+  private static final class Counter {
+    /**
+     * Longs per cache line
+     */
+    private static final int PADDING = 8;
+
+    private static final int STRIPES;
+
+    static {
+      int stripes = 1;
+      while (stripes < Runtime.getRuntime().availableProcessors() * 2 && stripes < 64) {
+        stripes <<= 1;
+      }
+      STRIPES = stripes;
+    }
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    void add(long x) {
+      int cell = (int) (Thread.currentThread().getId() & (STRIPES - 1)) * PADDING;
+      cells.addAndGet(cell, x);
+    }
+
+    long sum() {
+      long sum = 0;
+      for (int i = 0; i < STRIPES; i++) {
+        sum += cells.get(i * PADDING);
+      }
+      return sum;
+    }
+  }
+}
@@ -18,13 +18,8 @@
  */
 package net.sourceforge.pinyin4j;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
 
-import com.hp.hpl.sparta.Document;
-import com.hp.hpl.sparta.ParseException;
-import com.hp.hpl.sparta.Parser;
-
 /**
  * A class contains resource that translates from Hanyu Pinyin to Gwoyeu
  * Romatzyh
@@ -34,51 +29,47 @@ import com.hp.hpl.sparta.Parser;
  */
 class GwoyeuRomatzyhResource {
   /**
-   * A DOM model contains Hanyu Pinyin to Gwoyeu Romatzyh mapping
-   */
-  private Document pinyinToGwoyeuMappingDoc;
-
-  /**
-   * @param pinyinToGwoyeuMappingDoc
-   *            The pinyinToGwoyeuMappingDoc to set.
+   * A matrix contains Hanyu Pinyin to Gwoyeu Romatzyh mapping, one column per
+   * tone, immutable once loaded
    */
-  private void setPinyinToGwoyeuMappingDoc(Document pinyinToGwoyeuMappingDoc) {
-    this.pinyinToGwoyeuMappingDoc = pinyinToGwoyeuMappingDoc;
-  }
+  private final PinyinMappingTable pinyinToGwoyeuMappingTable;
 
   /**
-   * @return Returns the pinyinToGwoyeuMappingDoc.
+   * @return Returns the pinyinToGwoyeuMappingTable.
    */
-  Document getPinyinToGwoyeuMappingDoc() {
-    return pinyinToGwoyeuMappingDoc;
+  PinyinMappingTable getPinyinToGwoyeuMappingTable() {
+    return pinyinToGwoyeuMappingTable;
   }
 
   /**
    * Private constructor as part of the singleton pattern.
    */
   private GwoyeuRomatzyhResource() {
-    initializeResource();
+    long startTime = System.nanoTime();
+    pinyinToGwoyeuMappingTable = loadResource();
+    PinyinHelper.getMetrics().resourceLoaded(ResourceCompiler.GWOYEU_MAPPING,
+        System.nanoTime() - startTime);
   }
 
   /**
-   * Initialiez a DOM contains Hanyu Pinyin to Gwoyeu mapping
+   * Load the matrix compiled at build time, or parse the XML mapping if the
+   * compiled resource is not available. The XML parser is only linked in the
+   * latter case, so the class must not refer to its classes.
+   *
+   * @return the matrix; null if it can not be loaded
    */
-  private void initializeResource() {
+  private static PinyinMappingTable loadResource() {
     try {
-      final String mappingFileName = "/pinyindb/pinyin_gwoyeu_mapping.xml";
-      final String systemId = "";
-
-      // Parse file to DOM Document
-      setPinyinToGwoyeuMappingDoc(Parser.parse(systemId, ResourceHelper
-          .getResourceInputStream(mappingFileName)));
-
-    } catch (FileNotFoundException ex) {
-      ex.printStackTrace();
+      if (ResourceHelper.hasResource(ResourceCompiler.GWOYEU_MAPPING)) {
+        return PinyinMappingTable.read(ResourceHelper
+            .getResourceInputStream(ResourceCompiler.GWOYEU_MAPPING));
+      } else {
+        return ResourceCompiler.parseGwoyeuMapping();
+      }
     } catch (IOException ex) {
       ex.printStackTrace();
-    } catch (ParseException e) {
-      e.printStackTrace();
     }
+    return null;
   }
 
   /**
@@ -18,10 +18,6 @@
  */
 package net.sourceforge.pinyin4j;
 
-import com.hp.hpl.sparta.Document;
-import com.hp.hpl.sparta.Element;
-import com.hp.hpl.sparta.ParseException;
-
 /**
  * A class contains logic that translates from Hanyu Pinyin to Gwoyeu Romatzyh
  * 
@@ -38,38 +34,26 @@ class GwoyeuRomatzyhTranslator {
     String pinyinString = TextHelper.extractPinyinString(hanyuPinyinStr);
     String toneNumberStr = TextHelper.extractToneNumber(hanyuPinyinStr);
 
+    PinyinMappingTable pinyinToGwoyeuMappingTable =
+        GwoyeuRomatzyhResource.getInstance().getPinyinToGwoyeuMappingTable();
+
     // return value
     String gwoyeuStr = null;
-    try {
-      // find the node of source Pinyin system
-      String xpathQuery1 =
-          "//" + PinyinRomanizationType.HANYU_PINYIN.getTagName() + "[text()='" + pinyinString
-              + "']";
-
-      Document pinyinToGwoyeuMappingDoc =
-          GwoyeuRomatzyhResource.getInstance().getPinyinToGwoyeuMappingDoc();
-
-      Element hanyuNode = pinyinToGwoyeuMappingDoc.xpathSelectElement(xpathQuery1);
-
-      if (null != hanyuNode) {
-        // find the node of target Pinyin system
-        String xpathQuery2 =
-            "../" + PinyinRomanizationType.GWOYEU_ROMATZYH.getTagName()
-                + tones[Integer.parseInt(toneNumberStr) - 1] + "/text()";
 
-          gwoyeuStr = hanyuNode.xpathSelectString(xpathQuery2);
+    // find the row of Hanyu Pinyin, the column after Hanyu Pinyin is tone 1
+    int row = pinyinToGwoyeuMappingTable.getRow(0, pinyinString);
+    if (-1 != row) {
+      int tone = Character.digit(toneNumberStr.charAt(0), 10);
+      if (tone >= 1 && tone <= TONE_COUNT) {
+        gwoyeuStr = pinyinToGwoyeuMappingTable.get(row, tone);
       }
-    } catch (ParseException e) {
-      e.printStackTrace();
     }
 
     return gwoyeuStr;
   }
 
   /**
-   * The postfixs to distinguish different tone of Gwoyeu Romatzyh
-   * 
-   * <i>Should be removed if new xPath parser supporting tag name with number.</i>
+   * The number of tones distinguished by Gwoyeu Romatzyh
    */
-  static private String[] tones = new String[] {"_I", "_II", "_III", "_IV", "_V"};
+  private static final int TONE_COUNT = 5;
 }
@@ -0,0 +1,321 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+/**
+ * The pool of distinct unformatted Hanyu Pinyin syllables, e.g. "zhong1" or
+ * "lu:4", shared by all dictionary tables which refer to syllables by id.
+ *
+ * <p>
+ * For every combination of output formats the pool lazily compiles a table
+ * of formatted syllables the first time the combination is used, so
+ * formatting a pooled syllable afterwards is a single array load. Likewise
+ * for every Romanization system it compiles a table of translated syllables,
+ * and for both cases a table of initial letters.
+ *
+ */
+final class HanyuPinyinSyllables {
+  private final String[] syllables;
+
+  private final Map<String, Integer> ids;
+
+  /**
+   * Formatted syllables indexed by {@link HanyuPinyinOutputFormat#ordinal()}
+   * and then by syllable id
+   */
+  private final AtomicReferenceArray<String[]> formattedSyllables =
+      new AtomicReferenceArray<String[]>(HanyuPinyinOutputFormat.COMBINATION_COUNT);
+
+  /**
+   * Translated syllables indexed by {@link PinyinRomanizationType#ordinal()}
+   * and then by syllable id
+   */
+  private final AtomicReferenceArray<String[]> romanizedSyllables =
+      new AtomicReferenceArray<String[]>(PinyinRomanizationType.COUNT);
+
+  /**
+   * Initial letters of the syllables, lowercase and then uppercase, indexed
+   * by syllable id
+   */
+  private final AtomicReferenceArray<String[]> initials = new AtomicReferenceArray<String[]>(2);
+
+  HanyuPinyinSyllables(String[] syllables) {
+    this.syllables = syllables;
+    this.ids = new HashMap<String, Integer>(syllables.length * 2);
+    for (int i = 0; i < syllables.length; i++) {
+      ids.put(syllables[i], i);
+    }
+  }
+
+  /**
+   * @return the number of syllables in the pool
+   */
+  int size() {
+    return syllables.length;
+  }
+
+  /**
+   * @param id
+   *            id of a syllable
+   * @return the unformatted syllable with tone number
+   */
+  String get(int id) {
+    return syllables[id];
+  }
+
+  /**
+   * @param syllable
+   *            unformatted syllable with tone number
+   * @return id of the syllable; -1 if it is not in the pool
+   */
+  int indexOf(String syllable) {
+    Integer id = ids.get(syllable);
+    return null == id ? -1 : id;
+  }
+
+  /**
+   * @param id
+   *            id of a syllable
+   * @param outputFormat
+   *            given format of Hanyu Pinyin
+   * @return formatted Hanyu Pinyin string
+   * @throws BadHanyuPinyinOutputFormatCombination
+   */
+  String format(int id, HanyuPinyinOutputFormat outputFormat)
+      throws BadHanyuPinyinOutputFormatCombination {
+    return getFormattedSyllables(outputFormat)[id];
+  }
+
+  /**
+   * Get the table of formatted syllables, so that a caller formatting many
+   * syllables validates the format only once
+   *
+   * @param outputFormat
+   *            given format of Hanyu Pinyin
+   * @return the formatted syllables indexed by id, shared and not to be
+   *         modified
+   * @throws BadHanyuPinyinOutputFormatCombination
+   */
+  String[] getFormattedSyllables(HanyuPinyinOutputFormat outputFormat)
+      throws BadHanyuPinyinOutputFormatCombination {
+    int formatIndex = PinyinFormatter.getFormatIndex(outputFormat);
+    String[] formatted = formattedSyllables.get(formatIndex);
+    if (null == formatted) {
+      // compile from the immutable instance, the given format may be changed meanwhile
+      HanyuPinyinOutputFormat tableFormat = HanyuPinyinOutputFormat.valueOf(formatIndex);
+      formatted = new String[syllables.length];
+      for (int i = 0; i < syllables.length; i++) {
+        formatted[i] = PinyinFormatter.formatHanyuPinyin(syllables[i], tableFormat);
+      }
+      // concurrent compilations produce equal tables, any of them may win
+      formattedSyllables.set(formatIndex, formatted);
+    }
+    return formatted;
+  }
+
+  /**
+   * Get the table of initial letters, e.g. "z" for "zhong1", so that
+   * abbreviations are written without creating syllable strings
+   *
+   * @param caseType
+   *            the case of the letters; null for lowercase
+   * @return the initial letters indexed by syllable id, the empty string for
+   *         {@link UnicodeToHanyuPinyinTable#NONE}; shared and not to be
+   *         modified
+   */
+  String[] getInitials(HanyuPinyinCaseType caseType) {
+    int caseIndex = HanyuPinyinCaseType.UPPERCASE == caseType ? 1 : 0;
+    String[] table = initials.get(caseIndex);
+    if (null == table) {
+      // one string per letter
+      Map<Character, String> letters = new HashMap<Character, String>();
+      letters.put(null, "");
+      table = new String[syllables.length];
+      for (int i = 0; i < syllables.length; i++) {
+        Character letter = null;
+        if (syllables[i].length() > 0 && !UnicodeToHanyuPinyinTable.NONE.equals(syllables[i])) {
+          char ch = syllables[i].charAt(0);
+          letter = 1 == caseIndex ? Character.toUpperCase(ch) : Character.toLowerCase(ch);
+        }
+        table[i] = letters.get(letter);
+        if (null == table[i]) {
+          table[i] = String.valueOf(letter.charValue());
+          letters.put(letter, table[i]);
+        }
+      }
+      initials.set(caseIndex, table);
+    }
+    return table;
+  }
+
+  /**
+   * Format a syllable, using the compiled table if the syllable is pooled
+   *
+   * @param pinyinStr
+   *            unformatted Hanyu Pinyin string
+   * @param outputFormat
+   *            given format of Hanyu Pinyin
+   * @return formatted Hanyu Pinyin string
+   * @throws BadHanyuPinyinOutputFormatCombination
+   */
+  String format(String pinyinStr, HanyuPinyinOutputFormat outputFormat)
+      throws BadHanyuPinyinOutputFormatCombination {
+    int id = indexOf(pinyinStr);
+    return -1 == id ? PinyinFormatter.formatHanyuPinyin(pinyinStr, outputFormat) : format(id,
+        outputFormat);
+  }
+
+  /**
+   * @param id
+   *            id of a syllable
+   * @param targetPinyinSystem
+   *            the Romanization system that should be converted to
+   * @return unformatted Pinyin string in target Romanization system; null if
+   *         the syllable has no counterpart
+   */
+  String romanize(int id, PinyinRomanizationType targetPinyinSystem) {
+    int systemIndex = targetPinyinSystem.ordinal();
+    String[] romanized = romanizedSyllables.get(systemIndex);
+    if (null == romanized) {
+      romanized = new String[syllables.length];
+      for (int i = 0; i < syllables.length; i++) {
+        if (syllables[i].length() == 0) {
+          // no tone number to split off, and no counterpart in any system
+          continue;
+        }
+        if (PinyinRomanizationType.GWOYEU_ROMATZYH == targetPinyinSystem) {
+          romanized[i] = GwoyeuRomatzyhTranslator.convertHanyuPinyinToGwoyeuRomatzyh(syllables[i]);
+        } else {
+          romanized[i] =
+              PinyinRomanizationTranslator.convertRomanizationSystem(syllables[i],
+                  PinyinRomanizationType.HANYU_PINYIN, targetPinyinSystem);
+        }
+      }
+      romanizedSyllables.set(systemIndex, romanized);
+    }
+    return romanized[id];
+  }
+
+  /**
+   * Write the pool as the syllable section of the compiled dictionary
+   *
+   * @see #read(ByteBuffer)
+   */
+  void write(DataOutputStream out) throws IOException {
+    int[] offsets = new int[syllables.length + 1];
+    StringBuilder chars = new StringBuilder();
+    for (int i = 0; i < syllables.length; i++) {
+      chars.append(syllables[i]);
+      offsets[i + 1] = chars.length();
+    }
+    out.writeInt(syllables.length);
+    PinyinDictionary.writeInts(out, IntBuffer.wrap(offsets));
+    PinyinDictionary.writeChars(out, CharBuffer.wrap(chars));
+  }
+
+  /**
+   * @param buffer
+   *            the compiled dictionary, positioned at the syllable section and
+   *            advanced past it
+   * @return the pool
+   */
+  static HanyuPinyinSyllables read(ByteBuffer buffer) {
+    String[] syllables = new String[buffer.getInt()];
+    IntBuffer offsets = PinyinDictionary.getInts(buffer, syllables.length + 1);
+    CharBuffer chars = PinyinDictionary.getChars(buffer, offsets.get(syllables.length));
+    for (int i = 0; i < syllables.length; i++) {
+      syllables[i] = chars.subSequence(offsets.get(i), offsets.get(i + 1)).toString();
+    }
+    return new HanyuPinyinSyllables(syllables);
+  }
+
+  /**
+   * Assigns ids to distinct syllables in the order they are first seen
+   */
+  static final class Builder {
+    private final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+    private final List<String> syllables = new ArrayList<String>();
+
+    Builder() {}
+
+    /**
+     * @param base
+     *            pool whose syllables keep their ids in the new pool
+     */
+    Builder(HanyuPinyinSyllables base) {
+      for (String syllable : base.syllables) {
+        getId(syllable);
+      }
+    }
+
+    /**
+     * @param syllable
+     *            unformatted syllable with tone number
+     * @return id of the syllable, assigned now if it is new
+     */
+    int getId(String syllable) {
+      Integer id = ids.get(syllable);
+      if (null == id) {
+        if (syllables.size() > Character.MAX_VALUE) {
+          throw new IllegalStateException("too many distinct syllables");
+        }
+        id = syllables.size();
+        syllables.add(syllable);
+        ids.put(syllable, id);
+      }
+      return id;
+    }
+
+    /**
+     * @param readings
+     *            comma separated syllables, e.g. <code>ding1,zheng1</code>
+     * @return ids of the syllables in order; empty parts, e.g. of
+     *         <code>ni3,,hao3</code>, are left out
+     */
+    char[] getIds(String readings) {
+      String[] parts = readings.split(",");
+      char[] ids = new char[parts.length];
+      int count = 0;
+      for (String part : parts) {
+        if (part.length() > 0) {
+          ids[count++] = (char) getId(part);
+        }
+      }
+      return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    HanyuPinyinSyllables build() {
+      return new HanyuPinyinSyllables(syllables.toArray(new String[syllables.size()]));
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link PinyinCache} holding a bounded number of results, evicting the
+ * least recently used one when full. It counts the hits and misses of
+ * {@link #get(Object)} to tell whether the cache pays off.
+ *
+ * <p>
+ * The results are split by the hash of their keys into stripes, each with
+ * its own lock and its own order of use, so threads converting at the same
+ * time seldom wait for each other. A lock is held only for the lookup in a
+ * hash map, never during a conversion. The result evicted is the least
+ * recently used one of its stripe, which is close to, but not exactly, the
+ * least recently used one of the cache.
+ *
+ */
+public class LruPinyinCache implements PinyinCache {
+  /**
+   * Results kept by a stripe at least, smaller caches have fewer stripes
+   */
+  private static final int MIN_STRIPE_SIZE = 16;
+
+  private final int maxSize;
+
+  private final Stripe[] stripes;
+
+  /**
+   * Create a cache with about two stripes per processor
+   *
+   * @param maxSize
+   *            the number of results kept
+   * @throws IllegalArgumentException
+   *             if the size is not positive
+   */
+  public LruPinyinCache(int maxSize) {
+    this(maxSize, Runtime.getRuntime().availableProcessors() * 2);
+  }
+
+  /**
+   * @param maxSize
+   *            the number of results kept
+   * @param concurrencyLevel
+   *            the number of threads expected to use the cache at the same
+   *            time; 1 keeps the results in a single order of use
+   * @throws IllegalArgumentException
+   *             if the size or the concurrency level is not positive
+   */
+  public LruPinyinCache(int maxSize, int concurrencyLevel) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("cache size must be positive: " + maxSize);
+    }
+    if (concurrencyLevel <= 0) {
+      throw new IllegalArgumentException("concurrency level must be positive: "
+          + concurrencyLevel);
+    }
+    this.maxSize = maxSize;
+
+    // a power of two, to pick the stripe by a mask
+    int stripeCount = 1;
+    while (stripeCount < concurrencyLevel && stripeCount * 2 * MIN_STRIPE_SIZE <= maxSize) {
+      stripeCount <<= 1;
+    }
+    stripes = new Stripe[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      // the stripes hold maxSize results together
+      stripes[i] = new Stripe(maxSize / stripeCount + (i < maxSize % stripeCount ? 1 : 0));
+    }
+  }
+
+  private Stripe stripe(Object key) {
+    int hash = key.hashCode();
+    // the low bits of some hash codes hardly vary
+    hash ^= (hash >>> 20) ^ (hash >>> 12);
+    hash ^= (hash >>> 7) ^ (hash >>> 4);
+    return stripes[hash & (stripes.length - 1)];
+  }
+
+  public String get(Object key) {
+    Stripe stripe = stripe(key);
+    synchronized (stripe) {
+      String value = stripe.results.get(key);
+      if (value == null) {
+        stripe.missCount++;
+      } else {
+        stripe.hitCount++;
+      }
+      return value;
+    }
+  }
+
+  public void put(Object key, String value) {
+    Stripe stripe = stripe(key);
+    synchronized (stripe) {
+      stripe.results.put(key, value);
+    }
+  }
+
+  public int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.results.size();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * @return the number of results kept
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * @return the number of lookups which found a result
+   */
+  public long getHitCount() {
+    long hitCount = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        hitCount += stripe.hitCount;
+      }
+    }
+    return hitCount;
+  }
+
+  /**
+   * @return the number of lookups which found no result
+   */
+  public long getMissCount() {
+    long missCount = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        missCount += stripe.missCount;
+      }
+    }
+    return missCount;
+  }
+
+  /**
+   * Remove all results and reset the counters
+   */
+  public void clear() {
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        stripe.results.clear();
+        stripe.hitCount = 0;
+        stripe.missCount = 0;
+      }
+    }
+  }
+
+  /**
+   * Results of some keys, guarded by the stripe itself
+   */
+  private static final class Stripe {
+    /**
+     * Entries in access order, the least recently used first
+     */
+    final LinkedHashMap<Object, String> results;
+
+    long hitCount;
+
+    long missCount;
+
+    Stripe(final int maxSize) {
+      results = new LinkedHashMap<Object, String>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, String> eldest) {
+          return size() > maxSize;
+        }
+      };
+    }
+  }
+}
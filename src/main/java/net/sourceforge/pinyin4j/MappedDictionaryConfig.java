@@ -0,0 +1,40 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j;
+
+/**
+ * Opt-in memory mapped dictionary. If a path is set before the first use of
+ * {@link PinyinHelper}, the compiled dictionary is mapped read-only from that
+ * file instead of being loaded onto the heap, and all processes mapping the
+ * same file share one copy in the page cache.
+ *
+ * <p>
+ * The file is created from the dictionary bundled with pinyin4j if it does
+ * not exist yet, and written again if its checksum differs from the bundled
+ * one, e.g. after upgrading pinyin4j. Phrases of a user dictionary (see {@link net.sourceforge.pinyin4j.multipinyin.MultiPinyinConfig})
+ * are merged into a copy on the heap.
+ *
+ */
+public final class MappedDictionaryConfig {
+  /**
+   * Path of the mapped dictionary file; null to load the dictionary onto the
+   * heap. Defaults to the system property
+   * <code>pinyin4j.mappedDictionaryPath</code>.
+   */
+  public static String path = System.getProperty("pinyin4j.mappedDictionaryPath");
+
+  private MappedDictionaryConfig() {}
+}
@@ -0,0 +1,434 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A trie of multi-character phrases and their Hanyu Pinyin, keyed by char and
+ * stored as a double-array trie.
+ *
+ * <p>
+ * Every node is a slot of the arrays. The child of node <code>s</code> for
+ * character <code>c</code> is slot <code>t = base[s] + c</code> if
+ * <code>check[t] == s</code>, so following a character costs two array loads
+ * whatever the number of children. The readings of a phrase are ids of
+ * syllables in a pool shared with {@link UnicodeToHanyuPinyinTable}. The
+ * arrays are either on the heap or views of a memory mapped dictionary file.
+ *
+ * <p>
+ * Instances are immutable once built, see {@link Builder}.
+ *
+ */
+final class PhraseTrie {
+  /**
+   * The root node, the parent of the first characters of all phrases
+   */
+  static final int ROOT = 0;
+
+  /**
+   * {@link #base} of a node without children
+   */
+  private static final int LEAF = Integer.MIN_VALUE;
+
+  /**
+   * {@link #check} of a free slot
+   */
+  private static final int FREE = -1;
+
+  /**
+   * {@link #check} of the root, which has no parent
+   */
+  private static final int NO_PARENT = -2;
+
+  /**
+   * {@link #valueIndex} of a node where no phrase ends
+   */
+  private static final int NO_VALUE = -1;
+
+  /**
+   * Offset of the children of every node; {@link #LEAF} if it has none
+   */
+  private final IntBuffer base;
+
+  /**
+   * Parent of every node; {@link #FREE} if the slot is not a node
+   */
+  private final IntBuffer check;
+
+  /**
+   * Index into {@link #values} of the phrase ending at every node;
+   * {@link #NO_VALUE} if no phrase ends there
+   */
+  private final IntBuffer valueIndex;
+
+  /**
+   * The readings of all phrases, each one as its number of syllables followed
+   * by the syllable ids
+   */
+  private final CharBuffer values;
+
+  /**
+   * Bits of the characters which occur in a phrase after its first
+   * character, computed on first use; concurrent computations produce equal
+   * sets and any of them may win
+   */
+  private volatile long[] continuations;
+
+  /**
+   * Characters of the longest phrase, computed on first use; -1 before
+   */
+  private volatile int maxPhraseLength = -1;
+
+  private PhraseTrie(IntBuffer base, IntBuffer check, IntBuffer valueIndex, CharBuffer values) {
+    this.base = base;
+    this.check = check;
+    this.valueIndex = valueIndex;
+    this.values = values;
+  }
+
+  /**
+   * @param node
+   *            a node of the trie
+   * @param ch
+   *            the next character
+   * @return the child of the node for the character; -1 if there is none
+   */
+  int getChild(int node, char ch) {
+    int child = base.get(node) + ch;
+    if (child < 0 || child >= check.limit() || check.get(child) != node) {
+      return -1;
+    }
+    return child;
+  }
+
+  /**
+   * @return true if a longer phrase continues from the node
+   */
+  boolean hasChildren(int node) {
+    return base.get(node) != LEAF;
+  }
+
+  /**
+   * @return the number of syllables of the phrase ending at the node; 0 if no
+   *         phrase ends there
+   */
+  int getValueLength(int node) {
+    int index = valueIndex.get(node);
+    return NO_VALUE == index ? 0 : values.get(index);
+  }
+
+  /**
+   * @param node
+   *            a node where a phrase ends
+   * @param index
+   *            index of the syllable, less than {@link #getValueLength(int)}
+   * @return id of the syllable in the shared pool
+   */
+  int getValueId(int node, int index) {
+    return values.get(valueIndex.get(node) + 1 + index);
+  }
+
+  /**
+   * A character for which this is false never extends a phrase, so a match
+   * starting before it ends before it, and text can be split in front of it
+   * without changing the longest matches.
+   *
+   * @return true if some phrase contains the character after its first
+   *         character
+   */
+  boolean isContinuation(char ch) {
+    long[] bits = continuations;
+    if (null == bits) {
+      bits = new long[(Character.MAX_VALUE + 1) >> 6];
+      for (int slot = 0; slot < size(); slot++) {
+        int parent = check.get(slot);
+        if (parent > ROOT) {
+          int c = slot - base.get(parent);
+          bits[c >> 6] |= 1L << c;
+        }
+      }
+      continuations = bits;
+    }
+    return (bits[ch >> 6] & (1L << ch)) != 0;
+  }
+
+  /**
+   * A match starting at some index looks at most this many characters ahead,
+   * which bounds the lookahead needed to convert a stream.
+   *
+   * @return the number of characters of the longest phrase; 0 if there is
+   *         none
+   */
+  int getMaxPhraseLength() {
+    int length = maxPhraseLength;
+    if (length < 0) {
+      length = 0;
+      // the longest phrase ends at a leaf
+      for (int slot = 0; slot < size(); slot++) {
+        if (check.get(slot) >= ROOT && !hasChildren(slot)) {
+          int depth = 0;
+          for (int node = slot; node != ROOT; node = check.get(node)) {
+            depth++;
+          }
+          length = Math.max(length, depth);
+        }
+      }
+      maxPhraseLength = length;
+    }
+    return length;
+  }
+
+  /**
+   * @return the number of slots, including free ones
+   */
+  int size() {
+    return check.limit();
+  }
+
+  /**
+   * Write the trie as the phrase section of the compiled dictionary
+   *
+   * @see #read(ByteBuffer)
+   */
+  void write(DataOutputStream out) throws IOException {
+    out.writeInt(size());
+    out.writeInt(values.limit());
+    PinyinDictionary.writeInts(out, base);
+    PinyinDictionary.writeInts(out, check);
+    PinyinDictionary.writeInts(out, valueIndex);
+    PinyinDictionary.writeChars(out, values);
+  }
+
+  /**
+   * @param buffer
+   *            the compiled dictionary, positioned at the phrase section and
+   *            advanced past it
+   * @return the trie
+   */
+  static PhraseTrie read(ByteBuffer buffer) {
+    int size = buffer.getInt();
+    int valueCount = buffer.getInt();
+    IntBuffer base = PinyinDictionary.getInts(buffer, size);
+    IntBuffer check = PinyinDictionary.getInts(buffer, size);
+    IntBuffer valueIndex = PinyinDictionary.getInts(buffer, size);
+    CharBuffer values = PinyinDictionary.getChars(buffer, valueCount);
+    return new PhraseTrie(base, check, valueIndex, values);
+  }
+
+  /**
+   * Collects phrases and compiles them into an immutable {@link PhraseTrie}. A
+   * phrase put later replaces the readings of an earlier one.
+   */
+  static final class Builder {
+    private static final class Node {
+      final Map<Character, Node> children = new TreeMap<Character, Node>();
+
+      char[] value;
+
+      /**
+       * Slot of the node in the arrays being built
+       */
+      int slot;
+    }
+
+    private final HanyuPinyinSyllables.Builder syllables;
+
+    private final Node root = new Node();
+
+    private int[] base;
+
+    private int[] check;
+
+    /**
+     * Every slot before it is taken
+     */
+    private int firstFree;
+
+    /**
+     * @param syllables
+     *            assigns the ids of syllables
+     */
+    Builder(HanyuPinyinSyllables.Builder syllables) {
+      this.syllables = syllables;
+    }
+
+    /**
+     * Put every phrase of a trie built with the same syllable ids
+     */
+    Builder putAll(PhraseTrie trie) {
+      Node[] nodes = new Node[trie.size()];
+      nodes[ROOT] = root;
+      for (int slot = 0; slot < nodes.length; slot++) {
+        if (trie.check.get(slot) >= 0) {
+          Node node = getNode(trie, nodes, slot);
+          int length = trie.getValueLength(slot);
+          if (length > 0) {
+            node.value = new char[length];
+            for (int i = 0; i < length; i++) {
+              node.value[i] = (char) trie.getValueId(slot, i);
+            }
+          }
+        }
+      }
+      return this;
+    }
+
+    private Node getNode(PhraseTrie trie, Node[] nodes, int slot) {
+      if (null == nodes[slot]) {
+        int parent = trie.check.get(slot);
+        nodes[slot] =
+            getOrAddChild(getNode(trie, nodes, parent), (char) (slot - trie.base.get(parent)));
+      }
+      return nodes[slot];
+    }
+
+    /**
+     * @param phrase
+     *            the phrase, e.g. <code>一丁点儿</code>
+     * @param record
+     *            Hanyu Pinyin record of the phrase, e.g.
+     *            <code>(yi1,ding1,dian3,er5)</code>; mal-formatted records
+     *            are ignored
+     */
+    Builder put(String phrase, String record) {
+      int indexOfLeftBracket = record.indexOf('(');
+      int indexOfRightBracket = record.lastIndexOf(')');
+      if (phrase.length() == 0 || indexOfRightBracket <= indexOfLeftBracket) {
+        return this;
+      }
+
+      char[] ids = syllables.getIds(record.substring(indexOfLeftBracket + 1, indexOfRightBracket));
+      if (ids.length == 0) {
+        return this;
+      }
+
+      Node node = root;
+      for (int i = 0; i < phrase.length(); i++) {
+        node = getOrAddChild(node, phrase.charAt(i));
+      }
+      node.value = ids;
+      return this;
+    }
+
+    private static Node getOrAddChild(Node node, char ch) {
+      Node child = node.children.get(ch);
+      if (null == child) {
+        child = new Node();
+        node.children.put(ch, child);
+      }
+      return child;
+    }
+
+    PhraseTrie build() {
+      base = new int[Character.MAX_VALUE + 1];
+      check = new int[base.length];
+      Arrays.fill(check, FREE);
+      check[ROOT] = NO_PARENT;
+      firstFree = 1;
+      int size = 1;
+
+      // place the children of every node breadth first
+      List<Node> nodes = new ArrayList<Node>();
+      nodes.add(root);
+      int valueCount = 0;
+      for (int i = 0; i < nodes.size(); i++) {
+        Node node = nodes.get(i);
+        if (node.children.isEmpty()) {
+          base[node.slot] = LEAF;
+        } else {
+          int offset = findBase(node.children);
+          base[node.slot] = offset;
+          for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+            Node child = entry.getValue();
+            child.slot = offset + entry.getKey();
+            check[child.slot] = node.slot;
+            size = Math.max(size, child.slot + 1);
+            nodes.add(child);
+          }
+        }
+        if (null != node.value) {
+          valueCount += node.value.length + 1;
+        }
+      }
+
+      int[] valueIndex = new int[size];
+      Arrays.fill(valueIndex, NO_VALUE);
+      char[] values = new char[valueCount];
+      int position = 0;
+      for (Node node : nodes) {
+        if (null != node.value) {
+          valueIndex[node.slot] = position;
+          values[position++] = (char) node.value.length;
+          System.arraycopy(node.value, 0, values, position, node.value.length);
+          position += node.value.length;
+        }
+      }
+
+      PhraseTrie trie =
+          new PhraseTrie(IntBuffer.wrap(Arrays.copyOf(base, size)), IntBuffer.wrap(Arrays.copyOf(
+              check, size)), IntBuffer.wrap(valueIndex), CharBuffer.wrap(values));
+      base = null;
+      check = null;
+      return trie;
+    }
+
+    /**
+     * @return the first offset such that the slots of all children are free
+     */
+    private int findBase(Map<Character, Node> children) {
+      char first = children.keySet().iterator().next();
+      while (check[firstFree] != FREE) {
+        firstFree++;
+      }
+      for (int slot = firstFree;; slot++) {
+        ensureCapacity(slot + Character.MAX_VALUE + 1);
+        if (check[slot] != FREE) continue;
+
+        int offset = slot - first;
+        boolean free = true;
+        for (char ch : children.keySet()) {
+          if (check[offset + ch] != FREE) {
+            free = false;
+            break;
+          }
+        }
+        if (free) {
+          return offset;
+        }
+      }
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (capacity > check.length) {
+        int length = Math.max(capacity, check.length * 3 / 2);
+        base = Arrays.copyOf(base, length);
+        int free = check.length;
+        check = Arrays.copyOf(check, length);
+        Arrays.fill(check, free, length, FREE);
+      }
+    }
+  }
+}
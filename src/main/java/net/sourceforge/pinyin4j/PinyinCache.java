@@ -0,0 +1,56 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j;
+
+/**
+ * A cache of whole-string conversions, consulted by
+ * {@link PinyinHelper#toHanYuPinyinString(String, net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat, String, boolean)}
+ * once set with {@link PinyinHelper#setCache(PinyinCache)}. The keys are
+ * opaque objects combining the input with the options of the conversion,
+ * comparable with <code>equals</code> and <code>hashCode</code>.
+ *
+ * <p>
+ * Implementations must be thread safe. {@link LruPinyinCache} is a bounded
+ * one evicting the least recently used result; an application may plug in
+ * another, e.g. backed by the cache library it already uses:
+ *
+ * <pre>
+ * PinyinHelper.setCache(new PinyinCache() {
+ *   public String get(Object key) {
+ *     return myCache.getIfPresent(key);
+ *   }
+ *
+ *   public void put(Object key, String value) {
+ *     myCache.put(key, value);
+ *   }
+ *
+ *   public int size() {
+ *     return (int) myCache.size();
+ *   }
+ * });
+ * </pre>
+ *
+ */
+public interface PinyinCache {
+  /**
+   * @return the cached result, or null if there is none
+   */
+  String get(Object key);
+
+  void put(Object key, String value);
+
+  int size();
+}
@@ -0,0 +1,160 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j;
+
+import java.io.IOException;
+
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+/**
+ * Converts a text pushed in chunks of any size, e.g. as it arrives from the
+ * network, as
+ * {@link PinyinHelper#toHanYuPinyinString(String, HanyuPinyinOutputFormat, String, boolean)}
+ * converts the whole text.
+ *
+ * <p>
+ * A word is written as soon as it is decided: when no longer phrase can
+ * match and the character deciding whether a separator follows has been
+ * fed. The decided words are converted straight from the chunk and only the
+ * undecided tail, at most one phrase long, is held back, so chunks may split
+ * phrases and surrogate pairs anywhere and the result is identical to the
+ * conversion of the whole text.
+ *
+ * <pre>
+ * StringBuilder out = new StringBuilder();
+ * PinyinConverter converter = new PinyinConverter(HanyuPinyinOutputFormat.DEFAULT, &quot; &quot;, true, out);
+ * converter.feed(&quot;重&quot;);
+ * converter.feed(&quot;庆长城&quot;);
+ * converter.finish();
+ * </pre>
+ *
+ * <p>
+ * A converter is not thread safe. It may convert another text after
+ * {@link #finish()}. It keeps the user defined phrases in use when it was
+ * created, see {@link PinyinHelper#reloadUserDictionary()}.
+ *
+ */
+public final class PinyinConverter {
+  private final PinyinDictionary dictionary;
+
+  private final String[] formattedSyllables;
+
+  private final String separate;
+
+  private final boolean retain;
+
+  private final Appendable out;
+
+  /**
+   * A word is decided once the text goes on this many characters after its
+   * first one
+   */
+  private final int window;
+
+  /**
+   * The undecided words at the end of the text fed so far, at most
+   * {@link #window} characters
+   */
+  private final StringBuilder pending = new StringBuilder();
+
+  /**
+   * @param outputFormat
+   *            Describes the desired format of returned Hanyu Pinyin string
+   * @param separate
+   *            The string is appended after a Chinese character (excluding
+   *            the last Chinese character at the end of the text)
+   * @param retain
+   *            Retain the characters that cannot be converted into pinyin
+   *            characters
+   * @param out
+   *            The destination of the result
+   * @throws BadHanyuPinyinOutputFormatCombination
+   *             if certain combination of output formats happens
+   */
+  public PinyinConverter(HanyuPinyinOutputFormat outputFormat, String separate, boolean retain,
+      Appendable out) throws BadHanyuPinyinOutputFormatCombination {
+    this.dictionary = ChineseToPinyinResource.getInstance().getDictionary();
+    this.formattedSyllables = dictionary.getSyllables().getFormattedSyllables(outputFormat);
+    this.separate = separate;
+    this.retain = retain;
+    this.out = out;
+    // the longest match and the separator after it depend on the character following it
+    this.window = Math.max(dictionary.getPhraseTrie().getMaxPhraseLength(), 2);
+  }
+
+  /**
+   * Convert the next chunk of the text, writing the words which are decided
+   *
+   * @param chunk
+   *            the next characters of the text
+   * @throws IOException
+   *             if writing to the destination fails
+   */
+  public void feed(CharSequence chunk) throws IOException {
+    int length = chunk.length();
+    int offset = 0;
+    if (pending.length() > 0) {
+      // the undecided words and a window of the chunk, which decides them
+      int tail = pending.length();
+      int bridged = Math.min(length, window);
+      pending.append(chunk, 0, bridged);
+      int next = convert(pending, true);
+      if (bridged == length) {
+        pending.delete(0, next);
+        return;
+      }
+      // all words starting in the tail are decided, go on from the chunk
+      offset = next - tail;
+      pending.setLength(0);
+    }
+    int next = convert(chunk, offset, length, true);
+    pending.append(chunk, next, length);
+  }
+
+  /**
+   * Convert the rest of the text and reset the converter for another text
+   *
+   * @throws IOException
+   *             if writing to the destination fails
+   */
+  public void finish() throws IOException {
+    try {
+      convert(pending, false);
+    } finally {
+      pending.setLength(0);
+    }
+  }
+
+  private int convert(CharSequence text, boolean more) throws IOException {
+    return convert(text, 0, text.length(), more);
+  }
+
+  /**
+   * @param more
+   *            true to stop before the first undecided word
+   * @return the index after the last converted word
+   */
+  private int convert(CharSequence text, int offset, int limit, boolean more) throws IOException {
+    try {
+      return PinyinHelper.appendHanYuPinyinString(dictionary, null, formattedSyllables, text,
+          offset, limit, limit, more, separate, retain, out);
+    } catch (BadHanyuPinyinOutputFormatCombination e) {
+      // the formatted syllables are given
+      throw new AssertionError(e);
+    }
+  }
+}
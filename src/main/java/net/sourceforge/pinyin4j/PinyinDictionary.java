@@ -0,0 +1,361 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * The Hanyu Pinyin dictionary: the syllable pool, the readings of single
+ * characters and the phrase trie.
+ *
+ * <p>
+ * The dictionary is compiled from <code>unicode_to_hanyu_pinyin.txt</code>
+ * and <code>multi_pinyin.txt</code> at build time, see
+ * {@link ResourceCompiler}. The compiled form is a header followed by the
+ * sections of {@link HanyuPinyinSyllables}, {@link UnicodeToHanyuPinyinTable}
+ * and {@link PhraseTrie}, all big-endian with every array aligned to four
+ * bytes. It is either loaded onto the heap with one bulk read, or memory
+ * mapped from a file so that the lookups read the file pages directly.
+ *
+ */
+final class PinyinDictionary {
+  /**
+   * Leading bytes of the compiled form, "PYDC"
+   */
+  private static final int MAGIC = 0x50594443;
+
+  private static final int VERSION = 4;
+
+  /**
+   * Bytes of the header: magic, version, length and CRC-32 of the sections
+   */
+  private static final int HEADER_SIZE = 16;
+
+  private final HanyuPinyinSyllables syllables;
+
+  private final UnicodeToHanyuPinyinTable unicodeToHanyuPinyinTable;
+
+  private final PhraseTrie phraseTrie;
+
+  PinyinDictionary(HanyuPinyinSyllables syllables,
+      UnicodeToHanyuPinyinTable unicodeToHanyuPinyinTable, PhraseTrie phraseTrie) {
+    this.syllables = syllables;
+    this.unicodeToHanyuPinyinTable = unicodeToHanyuPinyinTable;
+    this.phraseTrie = phraseTrie;
+  }
+
+  /**
+   * @return the pool of syllables the table and the trie refer to
+   */
+  HanyuPinyinSyllables getSyllables() {
+    return syllables;
+  }
+
+  /**
+   * @return the readings of single characters
+   */
+  UnicodeToHanyuPinyinTable getUnicodeToHanyuPinyinTable() {
+    return unicodeToHanyuPinyinTable;
+  }
+
+  /**
+   * @return the readings of multi-character phrases
+   */
+  PhraseTrie getPhraseTrie() {
+    return phraseTrie;
+  }
+
+  /**
+   * Write the compiled form of the dictionary, read back by
+   * {@link #read(InputStream)}
+   *
+   * @param outStream
+   *            output stream, not closed
+   * @throws IOException
+   */
+  void write(OutputStream outStream) throws IOException {
+    ByteArrayOutputStream sections = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(sections);
+    syllables.write(out);
+    unicodeToHanyuPinyinTable.write(out);
+    phraseTrie.write(out);
+    out.flush();
+
+    byte[] bytes = sections.toByteArray();
+    CRC32 checksum = new CRC32();
+    checksum.update(bytes);
+
+    DataOutputStream header = new DataOutputStream(outStream);
+    header.writeInt(MAGIC);
+    header.writeInt(VERSION);
+    header.writeInt(bytes.length);
+    header.writeInt((int) checksum.getValue());
+    header.write(bytes);
+    header.flush();
+  }
+
+  /**
+   * @param inStream
+   *            input stream of the compiled form, closed when done
+   * @return the dictionary
+   * @throws IOException
+   *             if the stream can not be read or is not a compiled dictionary
+   */
+  static PinyinDictionary read(InputStream inStream) throws IOException {
+    DataInputStream in = new DataInputStream(inStream);
+    byte[] sections;
+    try {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("not a compiled pinyin dictionary");
+      }
+      sections = new byte[in.readInt()];
+      // the checksum tells mapped files apart, see map(File, int)
+      in.readInt();
+      in.readFully(sections);
+    } finally {
+      in.close();
+    }
+    return read(ByteBuffer.wrap(sections));
+  }
+
+  /**
+   * @param inStream
+   *            input stream of the compiled form, closed when done
+   * @return the checksum of the sections, read from the header only
+   * @throws IOException
+   *             if the stream can not be read or is not a compiled dictionary
+   */
+  static int readChecksum(InputStream inStream) throws IOException {
+    DataInputStream in = new DataInputStream(inStream);
+    try {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("not a compiled pinyin dictionary");
+      }
+      in.readInt();
+      return in.readInt();
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Map a file containing the compiled form of a dictionary. The arrays of
+   * the dictionary are views of the mapped pages, which the operating system
+   * shares among all processes mapping the same file.
+   *
+   * <p>
+   * The checksum is compared with the one of the header rather than
+   * computed, which would read every page of the file.
+   *
+   * @param file
+   *            file written by {@link #write(OutputStream)}
+   * @param checksum
+   *            the checksum of the expected dictionary, see
+   *            {@link #readChecksum(InputStream)}
+   * @return the dictionary
+   * @throws IOException
+   *             if the file can not be mapped, is not a compiled dictionary
+   *             or holds another dictionary, e.g. of another release
+   */
+  static PinyinDictionary map(File file, int checksum) throws IOException {
+    MappedByteBuffer mapped;
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      // the mapping stays valid after the channel is closed
+      mapped = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+          randomAccessFile.length());
+    } finally {
+      randomAccessFile.close();
+    }
+
+    if (mapped.limit() < HEADER_SIZE || mapped.getInt() != MAGIC || mapped.getInt() != VERSION
+        || mapped.getInt() != mapped.limit() - HEADER_SIZE) {
+      throw new IOException("not a compiled pinyin dictionary: " + file);
+    }
+    if (mapped.getInt() != checksum) {
+      throw new IOException("another pinyin dictionary: " + file);
+    }
+    return read(mapped.slice());
+  }
+
+  /**
+   * @param buffer
+   *            the sections of the compiled form
+   */
+  private static PinyinDictionary read(ByteBuffer buffer) {
+    HanyuPinyinSyllables syllables = HanyuPinyinSyllables.read(buffer);
+    UnicodeToHanyuPinyinTable table = UnicodeToHanyuPinyinTable.read(buffer, syllables);
+    PhraseTrie phraseTrie = PhraseTrie.read(buffer);
+    return new PinyinDictionary(syllables, table, phraseTrie);
+  }
+
+  /**
+   * Get ints at the position of the buffer, which is advanced past them. The
+   * ints of a direct buffer are returned as a view, those of a heap buffer
+   * are copied with one bulk get.
+   */
+  static IntBuffer getInts(ByteBuffer buffer, int length) {
+    IntBuffer ints = buffer.asIntBuffer();
+    ints.limit(length);
+    if (buffer.isDirect()) {
+      ints = ints.slice();
+    } else {
+      int[] array = new int[length];
+      ints.get(array);
+      ints = IntBuffer.wrap(array);
+    }
+    buffer.position(buffer.position() + length * 4);
+    return ints;
+  }
+
+  /**
+   * Get chars at the position of the buffer, which is advanced past them and
+   * the padding. The chars of a direct buffer are returned as a view, those
+   * of a heap buffer are copied with one bulk get.
+   */
+  static CharBuffer getChars(ByteBuffer buffer, int length) {
+    CharBuffer chars = buffer.asCharBuffer();
+    chars.limit(length);
+    if (buffer.isDirect()) {
+      chars = chars.slice();
+    } else {
+      char[] array = new char[length];
+      chars.get(array);
+      chars = CharBuffer.wrap(array);
+    }
+    buffer.position(buffer.position() + (length + (length & 1)) * 2);
+    return chars;
+  }
+
+  /**
+   * Write all ints of the buffer
+   *
+   * @see #getInts(ByteBuffer, int)
+   */
+  static void writeInts(DataOutputStream out, IntBuffer ints) throws IOException {
+    for (int i = 0; i < ints.limit(); i++) {
+      out.writeInt(ints.get(i));
+    }
+  }
+
+  /**
+   * Write all chars of the buffer, padded to four bytes
+   *
+   * @see #getChars(ByteBuffer, int)
+   */
+  static void writeChars(DataOutputStream out, CharBuffer chars) throws IOException {
+    for (int i = 0; i < chars.limit(); i++) {
+      out.writeChar(chars.get(i));
+    }
+    if ((chars.limit() & 1) != 0) {
+      out.writeChar(0);
+    }
+  }
+
+  /**
+   * Collects the text sources of a dictionary and compiles them into an
+   * immutable {@link PinyinDictionary}
+   */
+  static final class Builder {
+    private final HanyuPinyinSyllables.Builder syllables;
+
+    private final UnicodeToHanyuPinyinTable.Builder unicodeToHanyuPinyinTable;
+
+    private final PhraseTrie.Builder phraseTrie;
+
+    Builder() {
+      syllables = new HanyuPinyinSyllables.Builder();
+      unicodeToHanyuPinyinTable = new UnicodeToHanyuPinyinTable.Builder(syllables);
+      phraseTrie = new PhraseTrie.Builder(syllables);
+    }
+
+    /**
+     * @param base
+     *            dictionary whose entries are put first
+     */
+    Builder(PinyinDictionary base) {
+      syllables = new HanyuPinyinSyllables.Builder(base.syllables);
+      unicodeToHanyuPinyinTable =
+          new UnicodeToHanyuPinyinTable.Builder(syllables).putAll(base.unicodeToHanyuPinyinTable);
+      phraseTrie = new PhraseTrie.Builder(syllables).putAll(base.phraseTrie);
+    }
+
+    /**
+     * Load records in the format of <code>unicode_to_hanyu_pinyin.txt</code>
+     *
+     * @param inStream
+     *            UTF-8 encoded records, closed when done
+     */
+    Builder loadUnicodeToHanyuPinyin(InputStream inStream) throws IOException {
+      unicodeToHanyuPinyinTable.load(inStream);
+      return this;
+    }
+
+    /**
+     * Load records in the format of <code>multi_pinyin.txt</code>, e.g.
+     * <code>一丁点儿 (yi1,ding1,dian3,er5)</code>. A record of a single
+     * character, which may be a surrogate pair, replaces the readings of the
+     * character.
+     *
+     * @param inStream
+     *            input stream of the records, closed when done
+     * @param charsetName
+     *            encoding of the records
+     */
+    Builder loadMultiPinyin(InputStream inStream, String charsetName) throws IOException {
+      BufferedReader bufferedReader = null;
+      try {
+        bufferedReader = new BufferedReader(new InputStreamReader(inStream, charsetName));
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+          String[] keyAndValue = line.split(" ");
+          if (keyAndValue.length != 2) continue;
+
+          String key = keyAndValue[0];
+          if (key.length() > 0 && key.codePointCount(0, key.length()) == 1) {
+            unicodeToHanyuPinyinTable.put(key.codePointAt(0), keyAndValue[1]);
+          } else {
+            phraseTrie.put(key, keyAndValue[1]);
+          }
+        }
+      } finally {
+        if (bufferedReader != null) bufferedReader.close();
+      }
+      return this;
+    }
+
+    PinyinDictionary build() {
+      HanyuPinyinSyllables syllablePool = syllables.build();
+      return new PinyinDictionary(syllablePool, unicodeToHanyuPinyinTable.build(syllablePool),
+          phraseTrie.build());
+    }
+  }
+}
@@ -28,6 +28,22 @@ import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombi
  * 
  */
 class PinyinFormatter {
+  /**
+   * @param outputFormat
+   *            given format of Hanyu Pinyin
+   * @return the ordinal of the output format
+   * @throws BadHanyuPinyinOutputFormatCombination
+   *             if the combination is meaningless
+   * @see HanyuPinyinOutputFormat#ordinal()
+   */
+  static int getFormatIndex(HanyuPinyinOutputFormat outputFormat)
+      throws BadHanyuPinyinOutputFormatCombination {
+    if (!outputFormat.isValid()) {
+      throw new BadHanyuPinyinOutputFormatCombination("tone marks cannot be added to v or u:");
+    }
+    return outputFormat.ordinal();
+  }
+
   /**
    * @param pinyinStr
    *            unformatted Hanyu Pinyin string
@@ -15,9 +15,34 @@
 
 package net.sourceforge.pinyin4j;
 
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
 import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
 import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
-import net.sourceforge.pinyin4j.multipinyin.Trie;
+import net.sourceforge.pinyin4j.multipinyin.MultiPinyinConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * A class provides several utility functions to convert Chinese characters
@@ -31,6 +56,297 @@ public class PinyinHelper {
     private static final String[] ARR_EMPTY = {};
     private static final String EMPTY = "";
 
+    /**
+     * The least number of strings worth converting on another thread
+     */
+    private static final int MIN_BATCH_PART_SIZE = 256;
+
+    /**
+     * The least number of characters worth converting on another thread
+     */
+    private static final int MIN_TEXT_PART_LENGTH = 4096;
+
+    /**
+     * Characters read from a stream at once
+     */
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    /**
+     * Results of whole-string conversions; null if they are not cached
+     */
+    private static volatile PinyinCache cache;
+
+    /**
+     * Receives the measurements of the conversions
+     */
+    private static volatile PinyinMetrics metrics = PinyinMetrics.NONE;
+
+    /**
+     * Report the measurements of pinyin4j, e.g. the number of characters
+     * converted and the phrases matched, to the given metrics. Set it before
+     * the first conversion to also receive the loading times of the
+     * resources.
+     *
+     * @param metrics the metrics, e.g. a {@link CountingPinyinMetrics};
+     *                {@link PinyinMetrics#NONE} or null to stop measuring
+     */
+    static public void setMetrics(PinyinMetrics metrics) {
+        PinyinHelper.metrics = metrics == null ? PinyinMetrics.NONE : metrics;
+    }
+
+    /**
+     * @return the metrics receiving the measurements; {@link PinyinMetrics#NONE} by default
+     */
+    static public PinyinMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Load all resources now rather than on the first conversion needing
+     * them, e.g. while an application starts: the Hanyu Pinyin dictionary and
+     * the mappings to the other Romanization systems.
+     *
+     * @throws IllegalStateException if a resource can not be loaded
+     * @see #preloadAsync(Executor)
+     */
+    static public void preload() {
+        for (Callable<Void> loader : getResourceLoaders()) {
+            try {
+                loader.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Load all resources in the background, each by a task of its own, so a
+     * readiness check can wait for them while the application goes on
+     * starting.
+     *
+     * @param executor runs the loading tasks
+     * @return a future done when all resources are loaded; its
+     * <code>get</code> throws an {@link ExecutionException} if a resource
+     * can not be loaded
+     * @see #preload()
+     */
+    static public Future<Void> preloadAsync(Executor executor) {
+        List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>();
+        for (Callable<Void> loader : getResourceLoaders()) {
+            FutureTask<Void> task = new FutureTask<Void>(loader);
+            tasks.add(task);
+            executor.execute(task);
+        }
+        return new AllDone(tasks);
+    }
+
+    private static List<Callable<Void>> getResourceLoaders() {
+        List<Callable<Void>> loaders = new ArrayList<Callable<Void>>(3);
+        loaders.add(new Callable<Void>() {
+            public Void call() {
+                if (ChineseToPinyinResource.getInstance().getDictionary() == null) {
+                    throw new IllegalStateException("Hanyu Pinyin dictionary can not be loaded");
+                }
+                return null;
+            }
+        });
+        loaders.add(new Callable<Void>() {
+            public Void call() {
+                if (PinyinRomanizationResource.getInstance().getPinyinMappingTable() == null) {
+                    throw new IllegalStateException("Romanization mapping can not be loaded");
+                }
+                return null;
+            }
+        });
+        loaders.add(new Callable<Void>() {
+            public Void call() {
+                if (GwoyeuRomatzyhResource.getInstance().getPinyinToGwoyeuMappingTable() == null) {
+                    throw new IllegalStateException("Gwoyeu Romatzyh mapping can not be loaded");
+                }
+                return null;
+            }
+        });
+        return loaders;
+    }
+
+    /**
+     * A future done when all of the given tasks are, without a task of its
+     * own waiting for them
+     */
+    private static final class AllDone implements Future<Void> {
+        private final List<FutureTask<Void>> tasks;
+
+        AllDone(List<FutureTask<Void>> tasks) {
+            this.tasks = tasks;
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = false;
+            for (FutureTask<Void> task : tasks) {
+                cancelled |= task.cancel(mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+
+        public boolean isCancelled() {
+            for (FutureTask<Void> task : tasks) {
+                if (task.isCancelled()) return true;
+            }
+            return false;
+        }
+
+        public boolean isDone() {
+            for (FutureTask<Void> task : tasks) {
+                if (!task.isDone()) return false;
+            }
+            return true;
+        }
+
+        public Void get() throws InterruptedException, ExecutionException {
+            for (FutureTask<Void> task : tasks) {
+                task.get();
+            }
+            return null;
+        }
+
+        public Void get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            for (FutureTask<Void> task : tasks) {
+                task.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Cache the results of
+     * {@link #toHanYuPinyinString(String, HanyuPinyinOutputFormat, String, boolean)},
+     * e.g. when the same short strings are converted over and over again. No
+     * result is cached by default. A reload of the user defined phrases makes
+     * the cached results unreachable, they are evicted as the cache sees fit.
+     *
+     * @param cache the cache, e.g. a {@link LruPinyinCache}; null to stop caching
+     */
+    static public void setCache(PinyinCache cache) {
+        PinyinHelper.cache = cache;
+    }
+
+    /**
+     * @return the cache of whole-string conversions, or null if there is none
+     */
+    static public PinyinCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Read the user defined phrases again from
+     * {@link MultiPinyinConfig#multiPinyinPath}, e.g. after the file has been
+     * edited or the path changed, without restarting. The dictionary is
+     * rebuilt on the calling thread and then replaces the current one at
+     * once: conversions are never blocked, those already running finish with
+     * the previous phrases and the following ones use the new phrases.
+     * Cached conversions of the previous phrases are no longer returned.
+     *
+     * @throws IOException if the user defined phrases can not be read; the
+     *                     previous ones stay in use
+     * @see #reloadUserDictionaryAsync(Executor)
+     * @see #watchUserDictionary(ScheduledExecutorService, long, TimeUnit)
+     */
+    static public void reloadUserDictionary() throws IOException {
+        ChineseToPinyinResource.getInstance().reloadUserPhrases();
+    }
+
+    /**
+     * Reload the user defined phrases in the background
+     *
+     * @param executor runs the reload
+     * @return a future done when the new phrases are in use; its
+     * <code>get</code> throws an {@link ExecutionException} if they can not
+     * be read
+     * @see #reloadUserDictionary()
+     */
+    static public Future<Void> reloadUserDictionaryAsync(Executor executor) {
+        FutureTask<Void> task = new FutureTask<Void>(new Callable<Void>() {
+            public Void call() throws IOException {
+                reloadUserDictionary();
+                return null;
+            }
+        });
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Reload the user defined phrases whenever the file at
+     * {@link MultiPinyinConfig#multiPinyinPath} or the path itself changes.
+     * The file is checked periodically, by its modification time and length,
+     * so it should be replaced by a rename rather than rewritten in place.
+     * A file that can not be read keeps the previous phrases in use, is
+     * reported to {@link PinyinMetrics#resourceFailed} and read again on the
+     * next check.
+     *
+     * @param executor runs the checks and the reloads
+     * @param period   the time between two checks
+     * @param unit     the unit of the period
+     * @return the future of the checks, cancel it to stop watching
+     * @see #reloadUserDictionary()
+     */
+    static public ScheduledFuture<?> watchUserDictionary(ScheduledExecutorService executor,
+                                                         long period, TimeUnit unit) {
+        return executor.scheduleWithFixedDelay(new UserDictionaryWatch(), period, period, unit);
+    }
+
+    /**
+     * Reloads the user defined phrases when their file differs from the one
+     * seen last
+     */
+    private static final class UserDictionaryWatch implements Runnable {
+        private String path;
+        private long lastModified;
+        private long length;
+
+        UserDictionaryWatch() {
+            path = MultiPinyinConfig.multiPinyinPath;
+            if (path != null) {
+                File file = new File(path);
+                lastModified = file.lastModified();
+                length = file.length();
+            }
+        }
+
+        public void run() {
+            String path = MultiPinyinConfig.multiPinyinPath;
+            long lastModified = 0;
+            long length = 0;
+            if (path != null) {
+                // both are 0 if the file does not exist
+                File file = new File(path);
+                lastModified = file.lastModified();
+                length = file.length();
+            }
+            if ((path == null ? this.path == null : path.equals(this.path))
+                    && lastModified == this.lastModified && length == this.length) {
+                return;
+            }
+
+            try {
+                reloadUserDictionary();
+            } catch (Exception ex) {
+                // e.g. a malformed file; keep the previous phrases and try again
+                // on the next check, an exception would end the watch
+                getMetrics().resourceFailed(path == null ? ChineseToPinyinResource.DICTIONARY : path,
+                        ex);
+                return;
+            }
+            this.path = path;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+
     /**
      * Get all unformmatted Hanyu Pinyin presentations of a single Chinese
      * character (both Simplified and Tranditional)
@@ -54,6 +370,20 @@ public class PinyinHelper {
         return getUnformattedHanyuPinyinStringArray(ch);
     }
 
+    /**
+     * Get all unformmatted Hanyu Pinyin presentations of a single Chinese
+     * character given by its code point, which may be in a supplementary
+     * plane, e.g. a character of CJK Unified Ideographs Extension B
+     *
+     * @param codePoint the code point of the given Chinese character
+     * @return a String array contains all unformmatted Hanyu Pinyin
+     * presentations with tone numbers; null for non-Chinese character
+     * @see #toHanyuPinyinStringArray(char)
+     */
+    static public String[] toHanyuPinyinStringArray(int codePoint) {
+        return getUnformattedHanyuPinyinStringArray(codePoint);
+    }
+
     /**
      * Get all Hanyu Pinyin presentations of a single Chinese character (both
      * Simplified and Tranditional)
@@ -82,23 +412,41 @@ public class PinyinHelper {
         return getFormattedHanyuPinyinStringArray(ch, outputFormat);
     }
 
+    /**
+     * Get all Hanyu Pinyin presentations of a single Chinese character given
+     * by its code point, which may be in a supplementary plane
+     *
+     * @param codePoint    the code point of the given Chinese character
+     * @param outputFormat describes the desired format of returned Hanyu Pinyin String
+     * @return a String array contains all Hanyu Pinyin presentations with tone
+     * numbers; return empty string for non-Chinese character
+     * @throws BadHanyuPinyinOutputFormatCombination if certain combination of output formats happens
+     * @see #toHanyuPinyinStringArray(char, HanyuPinyinOutputFormat)
+     */
+    static public String[] toHanyuPinyinStringArray(int codePoint, HanyuPinyinOutputFormat outputFormat)
+            throws BadHanyuPinyinOutputFormatCombination {
+        return getFormattedHanyuPinyinStringArray(codePoint, outputFormat);
+    }
+
     /**
      * Return the formatted Hanyu Pinyin representations of the given Chinese
      * character (both in Simplified and Tranditional) in array format.
      *
-     * @param ch           the given Chinese character
+     * @param codePoint    the code point of the given Chinese character
      * @param outputFormat Describes the desired format of returned Hanyu Pinyin string
      * @return The formatted Hanyu Pinyin representations of the given codepoint
      * in array format; null if no record is found in the hashtable.
      */
-    static private String[] getFormattedHanyuPinyinStringArray(char ch,
+    static private String[] getFormattedHanyuPinyinStringArray(int codePoint,
                                                                HanyuPinyinOutputFormat outputFormat) throws BadHanyuPinyinOutputFormatCombination {
-        String[] pinyinStrArray = getUnformattedHanyuPinyinStringArray(ch);
+        UnicodeToHanyuPinyinTable table = ChineseToPinyinResource.getInstance().getUnicodeToHanyuPinyinTable();
 
-        if (null != pinyinStrArray) {
+        if (table.hasValidReadings(codePoint)) {
+            String[] formattedSyllables = table.getSyllables().getFormattedSyllables(outputFormat);
+            String[] pinyinStrArray = new String[table.getReadingCount(codePoint)];
 
             for (int i = 0; i < pinyinStrArray.length; i++) {
-                pinyinStrArray[i] = PinyinFormatter.formatHanyuPinyin(pinyinStrArray[i], outputFormat);
+                pinyinStrArray[i] = formattedSyllables[table.getReadingId(codePoint, i)];
             }
 
             return pinyinStrArray;
@@ -107,14 +455,69 @@ public class PinyinHelper {
             return ARR_EMPTY;
     }
 
+    /**
+     * Get the number of Hanyu Pinyin presentations of a single Chinese
+     * character, to be read one by one with
+     * {@link #getHanyuPinyin(int, int, HanyuPinyinOutputFormat)} without
+     * creating an array
+     *
+     * @param codePoint the code point of the given Chinese character
+     * @return the length of the array returned by
+     * {@link #toHanyuPinyinStringArray(int)}; 0 for non-Chinese character
+     */
+    static public int getHanyuPinyinCount(int codePoint) {
+        UnicodeToHanyuPinyinTable table = ChineseToPinyinResource.getInstance().getUnicodeToHanyuPinyinTable();
+        return table.hasValidReadings(codePoint) ? table.getReadingCount(codePoint) : 0;
+    }
+
+    /**
+     * Get one unformatted Hanyu Pinyin presentation of a single Chinese
+     * character. The string is shared, nothing is allocated.
+     *
+     * @param codePoint the code point of the given Chinese character
+     * @param index     index of the presentation, less than {@link #getHanyuPinyinCount(int)}
+     * @return the element of the array returned by {@link #toHanyuPinyinStringArray(int)}
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    static public String getHanyuPinyin(int codePoint, int index) {
+        UnicodeToHanyuPinyinTable table = ChineseToPinyinResource.getInstance().getUnicodeToHanyuPinyinTable();
+        return table.getSyllables().get(getReadingId(table, codePoint, index));
+    }
+
+    /**
+     * Get one formatted Hanyu Pinyin presentation of a single Chinese
+     * character. The string is shared, nothing is allocated.
+     *
+     * @param codePoint    the code point of the given Chinese character
+     * @param index        index of the presentation, less than {@link #getHanyuPinyinCount(int)}
+     * @param outputFormat describes the desired format of returned Hanyu Pinyin String
+     * @return the element of the array returned by
+     * {@link #toHanyuPinyinStringArray(int, HanyuPinyinOutputFormat)}
+     * @throws BadHanyuPinyinOutputFormatCombination if certain combination of output formats happens
+     * @throws IndexOutOfBoundsException             if the index is out of range
+     */
+    static public String getHanyuPinyin(int codePoint, int index, HanyuPinyinOutputFormat outputFormat)
+            throws BadHanyuPinyinOutputFormatCombination {
+        UnicodeToHanyuPinyinTable table = ChineseToPinyinResource.getInstance().getUnicodeToHanyuPinyinTable();
+        return table.getSyllables().getFormattedSyllables(outputFormat)[getReadingId(table, codePoint, index)];
+    }
+
+    private static int getReadingId(UnicodeToHanyuPinyinTable table, int codePoint, int index) {
+        int count = table.hasValidReadings(codePoint) ? table.getReadingCount(codePoint) : 0;
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index " + index + " of " + count + " readings");
+        }
+        return table.getReadingId(codePoint, index);
+    }
+
     /**
      * Delegate function
      *
-     * @param ch the given Chinese character
+     * @param codePoint the code point of the given Chinese character
      * @return unformatted Hanyu Pinyin strings; null if the record is not found
      */
-    private static String[] getUnformattedHanyuPinyinStringArray(char ch) {
-        return ChineseToPinyinResource.getInstance().getHanyuPinyinStringArray(ch);
+    private static String[] getUnformattedHanyuPinyinStringArray(int codePoint) {
+        return ChineseToPinyinResource.getInstance().getHanyuPinyinStringArray(codePoint);
     }
 
     /**
@@ -130,6 +533,19 @@ public class PinyinHelper {
         return convertToTargetPinyinStringArray(ch, PinyinRomanizationType.TONGYONG_PINYIN);
     }
 
+    /**
+     * Get all unformmatted Tongyong Pinyin presentations of a single Chinese
+     * character given by its code point, which may be in a supplementary plane
+     *
+     * @param codePoint the code point of the given Chinese character
+     * @return a String array contains all unformmatted Tongyong Pinyin
+     * presentations with tone numbers; null for non-Chinese character
+     * @see #toTongyongPinyinStringArray(char)
+     */
+    static public String[] toTongyongPinyinStringArray(int codePoint) {
+        return convertToTargetPinyinStringArray(codePoint, PinyinRomanizationType.TONGYONG_PINYIN);
+    }
+
     /**
      * Get all unformmatted Wade-Giles presentations of a single Chinese
      * character (both Simplified and Tranditional)
@@ -143,6 +559,19 @@ public class PinyinHelper {
         return convertToTargetPinyinStringArray(ch, PinyinRomanizationType.WADEGILES_PINYIN);
     }
 
+    /**
+     * Get all unformmatted Wade-Giles presentations of a single Chinese
+     * character given by its code point, which may be in a supplementary plane
+     *
+     * @param codePoint the code point of the given Chinese character
+     * @return a String array contains all unformmatted Wade-Giles
+     * presentations with tone numbers; null for non-Chinese character
+     * @see #toWadeGilesPinyinStringArray(char)
+     */
+    static public String[] toWadeGilesPinyinStringArray(int codePoint) {
+        return convertToTargetPinyinStringArray(codePoint, PinyinRomanizationType.WADEGILES_PINYIN);
+    }
+
     /**
      * Get all unformmatted MPS2 (Mandarin Phonetic Symbols 2) presentations of
      * a single Chinese character (both Simplified and Tranditional)
@@ -157,6 +586,19 @@ public class PinyinHelper {
         return convertToTargetPinyinStringArray(ch, PinyinRomanizationType.MPS2_PINYIN);
     }
 
+    /**
+     * Get all unformmatted MPS2 (Mandarin Phonetic Symbols 2) presentations of a single Chinese
+     * character given by its code point, which may be in a supplementary plane
+     *
+     * @param codePoint the code point of the given Chinese character
+     * @return a String array contains all unformmatted MPS2 (Mandarin Phonetic Symbols 2)
+     * presentations with tone numbers; null for non-Chinese character
+     * @see #toMPS2PinyinStringArray(char)
+     */
+    static public String[] toMPS2PinyinStringArray(int codePoint) {
+        return convertToTargetPinyinStringArray(codePoint, PinyinRomanizationType.MPS2_PINYIN);
+    }
+
     /**
      * Get all unformmatted Yale Pinyin presentations of a single Chinese
      * character (both Simplified and Tranditional)
@@ -171,7 +613,20 @@ public class PinyinHelper {
     }
 
     /**
-     * @param ch                 the given Chinese character
+     * Get all unformmatted Yale Pinyin presentations of a single Chinese
+     * character given by its code point, which may be in a supplementary plane
+     *
+     * @param codePoint the code point of the given Chinese character
+     * @return a String array contains all unformmatted Yale Pinyin
+     * presentations with tone numbers; null for non-Chinese character
+     * @see #toYalePinyinStringArray(char)
+     */
+    static public String[] toYalePinyinStringArray(int codePoint) {
+        return convertToTargetPinyinStringArray(codePoint, PinyinRomanizationType.YALE_PINYIN);
+    }
+
+    /**
+     * @param codePoint          the code point of the given Chinese character
      * @param targetPinyinSystem indicates target Chinese Romanization system should be
      *                           converted to
      * @return string representations of target Chinese Romanization system
@@ -179,17 +634,16 @@ public class PinyinHelper {
      * null if error happens
      * @see PinyinRomanizationType
      */
-    private static String[] convertToTargetPinyinStringArray(char ch,
+    private static String[] convertToTargetPinyinStringArray(int codePoint,
                                                              PinyinRomanizationType targetPinyinSystem) {
-        String[] hanyuPinyinStringArray = getUnformattedHanyuPinyinStringArray(ch);
+        UnicodeToHanyuPinyinTable table = ChineseToPinyinResource.getInstance().getUnicodeToHanyuPinyinTable();
 
-        if (null != hanyuPinyinStringArray) {
-            String[] targetPinyinStringArray = new String[hanyuPinyinStringArray.length];
+        if (table.hasValidReadings(codePoint)) {
+            HanyuPinyinSyllables syllables = table.getSyllables();
+            String[] targetPinyinStringArray = new String[table.getReadingCount(codePoint)];
 
-            for (int i = 0; i < hanyuPinyinStringArray.length; i++) {
-                targetPinyinStringArray[i] =
-                        PinyinRomanizationTranslator.convertRomanizationSystem(hanyuPinyinStringArray[i],
-                                PinyinRomanizationType.HANYU_PINYIN, targetPinyinSystem);
+            for (int i = 0; i < targetPinyinStringArray.length; i++) {
+                targetPinyinStringArray[i] = syllables.romanize(table.getReadingId(codePoint, i), targetPinyinSystem);
             }
 
             return targetPinyinStringArray;
@@ -212,26 +666,26 @@ public class PinyinHelper {
     }
 
     /**
-     * @param ch the given Chinese character
+     * Get all unformmatted Gwoyeu Romatzyh presentations of a single Chinese
+     * character given by its code point, which may be in a supplementary plane
+     *
+     * @param codePoint the code point of the given Chinese character
+     * @return a String array contains all unformmatted Gwoyeu Romatzyh
+     * presentations with tone numbers; null for non-Chinese character
+     * @see #toGwoyeuRomatzyhStringArray(char)
+     */
+    static public String[] toGwoyeuRomatzyhStringArray(int codePoint) {
+        return convertToGwoyeuRomatzyhStringArray(codePoint);
+    }
+
+    /**
+     * @param codePoint the code point of the given Chinese character
      * @return Gwoyeu Romatzyh string representations corresponding to the given
      * Chinese character in array format; null if error happens
      * @see PinyinRomanizationType
      */
-    private static String[] convertToGwoyeuRomatzyhStringArray(char ch) {
-        String[] hanyuPinyinStringArray = getUnformattedHanyuPinyinStringArray(ch);
-
-        if (null != hanyuPinyinStringArray) {
-            String[] targetPinyinStringArray = new String[hanyuPinyinStringArray.length];
-
-            for (int i = 0; i < hanyuPinyinStringArray.length; i++) {
-                targetPinyinStringArray[i] =
-                        GwoyeuRomatzyhTranslator.convertHanyuPinyinToGwoyeuRomatzyh(hanyuPinyinStringArray[i]);
-            }
-
-            return targetPinyinStringArray;
-
-        } else
-            return ARR_EMPTY;
+    private static String[] convertToGwoyeuRomatzyhStringArray(int codePoint) {
+        return convertToTargetPinyinStringArray(codePoint, PinyinRomanizationType.GWOYEU_ROMATZYH);
     }
 
     /**
@@ -253,59 +707,721 @@ public class PinyinHelper {
      * @return a String identical to the original one but all recognizable
      * Chinese characters are converted into main (first) Hanyu Pinyin
      * representation
+     * @see #setCache(PinyinCache)
      */
     static public String toHanYuPinyinString(String str, HanyuPinyinOutputFormat outputFormat,
                                              String separate, boolean retain) throws BadHanyuPinyinOutputFormatCombination {
-        ChineseToPinyinResource resource = ChineseToPinyinResource.getInstance();
-        StringBuilder resultPinyinStrBuf = new StringBuilder();
-
-        char[] chars = str.toCharArray();
-
-        for (int i = 0; i < chars.length; i++) {
-            String result = null;//匹配到的最长的结果
-            char ch = chars[i];
-            Trie currentTrie = resource.getUnicodeToHanyuPinyinTable();
-            int success = i;
-            int current = i;
-            do {
-                String hexStr = Integer.toHexString((int) ch).toUpperCase();
-                currentTrie = currentTrie.get(hexStr);
-                if (currentTrie != null) {
-                    if (currentTrie.getPinyin() != null) {
-                        result = currentTrie.getPinyin();
-                        success = current;
-                    }
-                    currentTrie = currentTrie.getNextTire();
-                }
-                current++;
-                if (current < chars.length)
-                    ch = chars[current];
-                else
-                    break;
+        PinyinCache cache = PinyinHelper.cache;
+        Object key = null;
+        if (cache != null) {
+            // before the conversion reads the dictionary, see getGeneration()
+            int generation = ChineseToPinyinResource.getInstance().getGeneration();
+            key = new ConversionKey(str, outputFormat, separate, retain, generation);
+            String result = cache.get(key);
+            PinyinMetrics metrics = PinyinHelper.metrics;
+            if (result != null) {
+                metrics.cacheHit();
+                return result;
             }
-            while (currentTrie != null);
+            metrics.cacheMiss();
+        }
+
+        StringBuilder resultPinyinStrBuf = new StringBuilder(str.length() * 4);
+        toHanYuPinyinString(str, 0, str.length(), outputFormat, separate, retain, resultPinyinStrBuf);
+        String result = resultPinyinStrBuf.toString();
+        if (cache != null) {
+            cache.put(key, result);
+        }
+        return result;
+    }
 
-            if (result == null) {//如果在前缀树中没有匹配到，那么它就不能转换为拼音，直接输出或者去掉
-                if (retain) resultPinyinStrBuf.append(chars[i]);
+    /**
+     * Append the given range of a character sequence to a buffer, with all
+     * Chinese characters replaced by corresponding main (first) Hanyu Pinyin
+     * representation.
+     * <p>
+     * The output is identical to
+     * {@link #toHanYuPinyinString(String, HanyuPinyinOutputFormat, String, boolean)}
+     * for the same range, but the input is not copied and no result string is
+     * created, so the caller can reuse one buffer for many conversions.
+     *
+     * @param str          A given character sequence contains Chinese characters
+     * @param offset       Index of the first character to convert
+     * @param length       Number of characters to convert
+     * @param outputFormat Describes the desired format of returned Hanyu Pinyin string
+     * @param separate     The string is appended after a Chinese character (excluding
+     *                     the last Chinese character at the end of the range)
+     * @param retain       Retain the characters that cannot be converted into pinyin characters
+     * @param out          The buffer the result is appended to
+     * @throws IndexOutOfBoundsException if the range is not within the sequence
+     * @see #toHanYuPinyinString(String, HanyuPinyinOutputFormat, String, boolean)
+     */
+    static public void toHanYuPinyinString(CharSequence str, int offset, int length,
+                                           HanyuPinyinOutputFormat outputFormat, String separate, boolean retain,
+                                           StringBuilder out) throws BadHanyuPinyinOutputFormatCombination {
+        try {
+            appendHanYuPinyinString(str, offset, length, outputFormat, separate, retain, out);
+        } catch (IOException e) {
+            // StringBuilder never throws IOException
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Append the given range of a character sequence to an {@link Appendable},
+     * e.g. a {@link java.nio.CharBuffer} or a {@link java.io.Writer}, with all
+     * Chinese characters replaced by corresponding main (first) Hanyu Pinyin
+     * representation.
+     *
+     * @param str          A given character sequence contains Chinese characters
+     * @param offset       Index of the first character to convert
+     * @param length       Number of characters to convert
+     * @param outputFormat Describes the desired format of returned Hanyu Pinyin string
+     * @param separate     The string is appended after a Chinese character (excluding
+     *                     the last Chinese character at the end of the range)
+     * @param retain       Retain the characters that cannot be converted into pinyin characters
+     * @param out          The destination the result is appended to
+     * @throws IOException               if appending to the destination fails
+     * @throws IndexOutOfBoundsException if the range is not within the sequence
+     * @see #toHanYuPinyinString(CharSequence, int, int, HanyuPinyinOutputFormat, String, boolean, StringBuilder)
+     */
+    static public void toHanYuPinyinString(CharSequence str, int offset, int length,
+                                           HanyuPinyinOutputFormat outputFormat, String separate, boolean retain,
+                                           Appendable out) throws BadHanyuPinyinOutputFormatCombination, IOException {
+        appendHanYuPinyinString(str, offset, length, outputFormat, separate, retain, out);
+    }
+
+    private static void appendHanYuPinyinString(CharSequence str, int offset, int length,
+                                                HanyuPinyinOutputFormat outputFormat, String separate, boolean retain,
+                                                Appendable out) throws BadHanyuPinyinOutputFormatCombination, IOException {
+        if (offset < 0 || length < 0 || offset + length > str.length() || offset + length < 0) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length
+                    + ", sequence length " + str.length());
+        }
+
+        PinyinDictionary dictionary = ChineseToPinyinResource.getInstance().getDictionary();
+        appendHanYuPinyinString(dictionary, outputFormat, null, str, offset, offset + length, offset + length,
+                false, separate, retain, out);
+    }
+
+    /**
+     * Get the abbreviation of a string, e.g. "bj" for "北京": every Chinese
+     * character is replaced by the initial letter of its main (first) Hanyu
+     * Pinyin representation, or of its reading in a phrase, e.g. "cq" for
+     * "重庆". Unlike taking the first letter of the converted string, no
+     * syllable string is created.
+     *
+     * @param str      A given string contains Chinese characters
+     * @param caseType The case of the initial letters; null for lowercase
+     * @param retain   Retain the characters that cannot be converted into pinyin characters
+     * @return the initial letters
+     */
+    static public String toHanYuPinyinInitials(String str, HanyuPinyinCaseType caseType, boolean retain) {
+        StringBuilder out = new StringBuilder(str.length());
+        try {
+            toHanYuPinyinInitials(str, 0, str.length(), caseType, retain, out);
+        } catch (IOException e) {
+            // StringBuilder never throws IOException
+            throw new AssertionError(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Append the abbreviation of the given range of a character sequence to an
+     * {@link Appendable}
+     *
+     * @param str      A given character sequence contains Chinese characters
+     * @param offset   Index of the first character to convert
+     * @param length   Number of characters to convert
+     * @param caseType The case of the initial letters; null for lowercase
+     * @param retain   Retain the characters that cannot be converted into pinyin characters
+     * @param out      The destination the result is appended to
+     * @throws IndexOutOfBoundsException if the range is not within the sequence
+     * @throws IOException               if appending to the destination fails
+     * @see #toHanYuPinyinInitials(String, HanyuPinyinCaseType, boolean)
+     */
+    static public void toHanYuPinyinInitials(CharSequence str, int offset, int length, HanyuPinyinCaseType caseType,
+                                             boolean retain, Appendable out) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > str.length() || offset + length < 0) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length
+                    + ", sequence length " + str.length());
+        }
+
+        PinyinDictionary dictionary = ChineseToPinyinResource.getInstance().getDictionary();
+        try {
+            // the initials take the place of the formatted syllables
+            appendHanYuPinyinString(dictionary, null, dictionary.getSyllables().getInitials(caseType), str, offset,
+                    offset + length, offset + length, false, EMPTY, retain, out);
+        } catch (BadHanyuPinyinOutputFormatCombination e) {
+            // there is no output format to validate
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Get the distinct initial letters of all Hanyu Pinyin representations of
+     * a single Chinese character, e.g. "zc" for '重' read "zhong4" or
+     * "chong2", so that an abbreviation of any reading can be matched
+     *
+     * @param codePoint the code point of the given Chinese character
+     * @param caseType  The case of the initial letters; null for lowercase
+     * @return the initial letters in the order of the representations; the
+     * empty string for non-Chinese character
+     */
+    static public String getHanyuPinyinInitials(int codePoint, HanyuPinyinCaseType caseType) {
+        UnicodeToHanyuPinyinTable table = ChineseToPinyinResource.getInstance().getUnicodeToHanyuPinyinTable();
+        if (!table.hasValidReadings(codePoint)) {
+            return EMPTY;
+        }
+
+        String[] initials = table.getSyllables().getInitials(caseType);
+        int count = table.getReadingCount(codePoint);
+        if (1 == count) {
+            return initials[table.getReadingId(codePoint, 0)];
+        }
+        StringBuilder result = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            String initial = initials[table.getReadingId(codePoint, i)];
+            if (result.indexOf(initial) < 0) {
+                result.append(initial);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Enumerate the readings of a string, e.g. for indexing every plausible
+     * pronounciation: every combination of the Hanyu Pinyin representations
+     * of its Chinese characters, formatted and separated as
+     * {@link #toHanYuPinyinString(String, HanyuPinyinOutputFormat, String, boolean)}
+     * does.
+     * <p>
+     * The first reading is the one returned by
+     * {@link #toHanYuPinyinString(String, HanyuPinyinOutputFormat, String, boolean)},
+     * so a phrase of the dictionary is read as recorded before the other
+     * readings of its characters are tried. Then the readings of the last
+     * characters vary first. Equal readings, e.g. of two tones when the
+     * tones are not written, are returned once.
+     * <p>
+     * The readings are composed as the iterator advances, so a long string
+     * with many polyphonic characters does not exhaust memory; the
+     * readings returned so far are kept to skip duplicates.
+     *
+     * @param str          A given string contains Chinese characters
+     * @param outputFormat Describes the desired format of returned Hanyu Pinyin string
+     * @param separate     The string is appended after a Chinese character (excluding
+     *                     the last Chinese character at the end of sentence)
+     * @param retain       Retain the characters that cannot be converted into pinyin characters
+     * @param maxReadings  The number of readings returned at most
+     * @return an iterator over the distinct readings, not supporting removal
+     * @throws BadHanyuPinyinOutputFormatCombination if certain combination of output formats happens
+     * @throws IllegalArgumentException              if the number of readings is not positive
+     */
+    static public Iterator<String> toHanYuPinyinReadings(String str, HanyuPinyinOutputFormat outputFormat,
+                                                         String separate, boolean retain, int maxReadings)
+            throws BadHanyuPinyinOutputFormatCombination {
+        if (maxReadings <= 0) {
+            throw new IllegalArgumentException("number of readings must be positive: " + maxReadings);
+        }
+        PinyinDictionary dictionary = ChineseToPinyinResource.getInstance().getDictionary();
+        return new PinyinReadings(dictionary, dictionary.getSyllables().getFormattedSyllables(outputFormat), str,
+                separate, retain, maxReadings);
+    }
+
+    /**
+     * Get the readings of a string as a lattice: the arcs of all readings of
+     * its Chinese characters and of all phrases of the dictionary found in
+     * it, with the arcs taken by
+     * {@link #toHanYuPinyinString(String, HanyuPinyinOutputFormat, String, boolean)}
+     * marked preferred
+     *
+     * @param str          A given string contains Chinese characters
+     * @param outputFormat Describes the desired format of the syllables
+     * @return the lattice of the readings
+     * @throws BadHanyuPinyinOutputFormatCombination if certain combination of output formats happens
+     * @see PinyinLattice
+     */
+    static public PinyinLattice toHanYuPinyinLattice(String str, HanyuPinyinOutputFormat outputFormat)
+            throws BadHanyuPinyinOutputFormatCombination {
+        PinyinDictionary dictionary = ChineseToPinyinResource.getInstance().getDictionary();
+        return new PinyinLattice(dictionary, dictionary.getSyllables().getFormattedSyllables(outputFormat), str);
+    }
+
+    /**
+     * Convert a range with the dictionary and the formatted syllables already
+     * resolved, so that conversions of many strings share them
+     *
+     * @param formattedSyllables the syllables of the dictionary in the output
+     *                           format, or their initials, indexed by id;
+     *                           null to look them up at the first Chinese
+     *                           character, which validates the format only
+     *                           if there is one
+     * @param end                Index after the last character to convert
+     * @param limit              Index after the last character of the text,
+     *                           phrases starting before <code>end</code> are
+     *                           matched up to it
+     * @param more               true if the text may go on after
+     *                           <code>limit</code>: the conversion then stops
+     *                           before the first word which the characters to
+     *                           come could change, see {@link WordMatch#separated}
+     * @return the index after the last converted word, which may be beyond
+     * <code>end</code> if the last word is a phrase
+     */
+    static int appendHanYuPinyinString(PinyinDictionary dictionary, HanyuPinyinOutputFormat outputFormat,
+                                       String[] formattedSyllables, CharSequence str, int offset, int end,
+                                       int limit, boolean more, String separate, boolean retain, Appendable out)
+            throws BadHanyuPinyinOutputFormatCombination, IOException {
+        UnicodeToHanyuPinyinTable table = dictionary.getUnicodeToHanyuPinyinTable();
+        PhraseTrie phraseTrie = dictionary.getPhraseTrie();
+        PinyinMetrics metrics = PinyinHelper.metrics;
+        boolean measured = metrics != PinyinMetrics.NONE;
+        long startTime = measured ? System.nanoTime() : 0;
+        int unknownCount = 0;
+
+        WordMatch match = new WordMatch(phraseTrie);
+        int i = offset;
+        while (i < end) {
+            match.match(str, i, limit);//匹配到的最长的多字词结果
+            if (more && !match.separated) {
+                break;
+            }
+            if (match.node == -1) {
+                if (table.getReadingCount(match.codePoint) == 0) {//如果没有匹配到，那么它就不能转换为拼音，直接输出或者去掉
+                    if (retain) out.append(str, i, match.end);
+                    unknownCount++;
+                } else {//单字取第一个读音
+                    if (formattedSyllables == null) {
+                        formattedSyllables = dictionary.getSyllables().getFormattedSyllables(outputFormat);
+                    }
+                    out.append(formattedSyllables[table.getReadingId(match.codePoint, 0)]);
+                    if (match.separated) {
+                        out.append(separate);
+                    }
+                }
             } else {
-                String[] pinyinStrArray = resource.parsePinyinString(result);
-                if (pinyinStrArray != null) {
-                    for (int j = 0; j < pinyinStrArray.length; j++) {
-                        resultPinyinStrBuf.append(PinyinFormatter.formatHanyuPinyin(pinyinStrArray[j], outputFormat));
-                        if (current < chars.length || (j < pinyinStrArray.length - 1 && i != success)) {//不是最后一个,(也不是拼音的最后一个,并且不是最后匹配成功的)
-                            resultPinyinStrBuf.append(separate);
-                        }
-                        if (i == success)
-                            break;
+                if (formattedSyllables == null) {
+                    formattedSyllables = dictionary.getSyllables().getFormattedSyllables(outputFormat);
+                }
+                if (measured) metrics.phraseMatched(match.end - i);
+                int pinyinCount = phraseTrie.getValueLength(match.node);
+                for (int j = 0; j < pinyinCount; j++) {
+                    out.append(formattedSyllables[phraseTrie.getValueId(match.node, j)]);
+                    if (match.separated || j < pinyinCount - 1) {//不是最后一个,也不是拼音的最后一个
+                        out.append(separate);
                     }
                 }
             }
-            i = success;
+            i = match.end;
+        }
+        if (measured) {
+            metrics.converted(i - offset, System.nanoTime() - startTime);
+            if (unknownCount > 0) metrics.unknownCharacters(unknownCount);
+        }
+        return i;
+    }
+
+    /**
+     * Convert a text read from a stream as
+     * {@link #toHanYuPinyinString(String, HanyuPinyinOutputFormat, String, boolean)}
+     * does, writing the result while reading. Only the characters of a word
+     * still undecided at the end of a read are held back, so phrases are
+     * matched across reads and the result is identical to the conversion of
+     * the whole text at once.
+     *
+     * @param in           The text to convert, read to the end but not closed
+     * @param outputFormat Describes the desired format of returned Hanyu Pinyin string
+     * @param separate     The string is appended after a Chinese character (excluding
+     *                     the last Chinese character at the end of the text)
+     * @param retain       Retain the characters that cannot be converted into pinyin characters
+     * @param out          The destination of the result, neither flushed nor closed
+     * @throws IOException if reading or writing fails
+     * @see #toHanYuPinyinString(String, HanyuPinyinOutputFormat, String, boolean)
+     */
+    static public void toHanYuPinyinString(Reader in, HanyuPinyinOutputFormat outputFormat, String separate,
+                                           boolean retain, Writer out) throws BadHanyuPinyinOutputFormatCombination, IOException {
+        PinyinConverter converter = new PinyinConverter(outputFormat, separate, retain, out);
+        char[] buffer = new char[STREAM_BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            converter.feed(CharBuffer.wrap(buffer, 0, read));
+        }
+        converter.finish();
+    }
+
+    /**
+     * Convert a text read from a channel, e.g. of a file or a socket, and
+     * write the result to a channel
+     *
+     * @param in           The text to convert, read to the end but not closed
+     * @param charset      The encoding of the text and of the result;
+     *                     malformed input is replaced
+     * @param outputFormat Describes the desired format of returned Hanyu Pinyin string
+     * @param separate     The string is appended after a Chinese character (excluding
+     *                     the last Chinese character at the end of the text)
+     * @param retain       Retain the characters that cannot be converted into pinyin characters
+     * @param out          The destination of the result, not closed
+     * @throws IOException if reading or writing fails
+     * @see #toHanYuPinyinString(Reader, HanyuPinyinOutputFormat, String, boolean, Writer)
+     */
+    static public void toHanYuPinyinString(ReadableByteChannel in, Charset charset,
+                                           HanyuPinyinOutputFormat outputFormat, String separate, boolean retain,
+                                           WritableByteChannel out) throws BadHanyuPinyinOutputFormatCombination, IOException {
+        Reader reader = Channels.newReader(in, charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE), -1);
+        Writer writer = Channels.newWriter(out, charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE), -1);
+        toHanYuPinyinString(reader, outputFormat, separate, retain, writer);
+        // closing the writer would close the channel
+        writer.flush();
+    }
+
+    /**
+     * Convert a batch of strings as
+     * {@link #toHanYuPinyinString(String, HanyuPinyinOutputFormat, String, boolean)}
+     * does, but the dictionary and the formatted syllables are looked up and
+     * the output format is validated once for the whole batch, and one buffer
+     * is reused for all strings.
+     *
+     * @param strs         The strings to convert
+     * @param outputFormat Describes the desired format of returned Hanyu Pinyin string
+     * @param separate     The string is appended after a Chinese character (excluding
+     *                     the last Chinese character at the end of every string)
+     * @param retain       Retain the characters that cannot be converted into pinyin characters
+     * @return a new array contains the result of every string at its index
+     * @throws NullPointerException if an element of the batch is null
+     */
+    static public String[] toHanYuPinyinStrings(String[] strs, HanyuPinyinOutputFormat outputFormat,
+                                                String separate, boolean retain) throws BadHanyuPinyinOutputFormatCombination {
+        String[] results = new String[strs.length];
+        PinyinDictionary dictionary = ChineseToPinyinResource.getInstance().getDictionary();
+        convertBatch(Arrays.asList(strs), 0, strs.length, dictionary,
+                dictionary.getSyllables().getFormattedSyllables(outputFormat), separate, retain, results);
+        return results;
+    }
+
+    /**
+     * Convert a batch of strings as
+     * {@link #toHanYuPinyinStrings(String[], HanyuPinyinOutputFormat, String, boolean)}
+     * does, splitting a large batch into one part per processor. The calling
+     * thread converts the first part while the executor converts the others.
+     *
+     * @param strs         The strings to convert
+     * @param outputFormat Describes the desired format of returned Hanyu Pinyin string
+     * @param separate     The string is appended after a Chinese character (excluding
+     *                     the last Chinese character at the end of every string)
+     * @param retain       Retain the characters that cannot be converted into pinyin characters
+     * @param executor     Runs the parts of the batch, e.g. a thread pool
+     * @return a new array contains the result of every string at its index
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the executor
+     * @throws NullPointerException if an element of the batch is null
+     * @see #toHanYuPinyinStrings(String[], HanyuPinyinOutputFormat, String, boolean)
+     */
+    static public String[] toHanYuPinyinStrings(String[] strs, HanyuPinyinOutputFormat outputFormat,
+                                                String separate, boolean retain, Executor executor)
+            throws BadHanyuPinyinOutputFormatCombination, InterruptedException {
+        return toHanYuPinyinStrings(strs, outputFormat, separate, retain, executor, getBatchPartCount(strs.length));
+    }
+
+    /**
+     * Convert a batch of strings in the given number of parts, whatever the
+     * number of processors, e.g. to test how the parts are merged
+     *
+     * @param partCount the number of parts, fewer if the batch is smaller
+     */
+    static String[] toHanYuPinyinStrings(String[] strs, HanyuPinyinOutputFormat outputFormat, String separate,
+                                         boolean retain, Executor executor, int partCount)
+            throws BadHanyuPinyinOutputFormatCombination, InterruptedException {
+        String[] results = new String[strs.length];
+        convertBatch(Arrays.asList(strs), outputFormat, separate, retain, executor, partCount, results);
+        return results;
+    }
+
+    /**
+     * Convert a batch of character sequences
+     *
+     * @param strs         The character sequences to convert
+     * @param outputFormat Describes the desired format of returned Hanyu Pinyin string
+     * @param separate     The string is appended after a Chinese character (excluding
+     *                     the last Chinese character at the end of every sequence)
+     * @param retain       Retain the characters that cannot be converted into pinyin characters
+     * @return a new list contains the result of every sequence at its index
+     * @throws NullPointerException if an element of the batch is null
+     * @see #toHanYuPinyinStrings(String[], HanyuPinyinOutputFormat, String, boolean)
+     */
+    static public List<String> toHanYuPinyinStrings(List<? extends CharSequence> strs,
+                                                    HanyuPinyinOutputFormat outputFormat, String separate, boolean retain)
+            throws BadHanyuPinyinOutputFormatCombination {
+        String[] results = new String[strs.size()];
+        PinyinDictionary dictionary = ChineseToPinyinResource.getInstance().getDictionary();
+        convertBatch(strs, 0, results.length, dictionary,
+                dictionary.getSyllables().getFormattedSyllables(outputFormat), separate, retain, results);
+        return new ArrayList<String>(Arrays.asList(results));
+    }
+
+    /**
+     * Convert a batch of character sequences, splitting a large batch across
+     * an executor
+     *
+     * @param strs         The character sequences to convert, which must not change until done
+     * @param outputFormat Describes the desired format of returned Hanyu Pinyin string
+     * @param separate     The string is appended after a Chinese character (excluding
+     *                     the last Chinese character at the end of every sequence)
+     * @param retain       Retain the characters that cannot be converted into pinyin characters
+     * @param executor     Runs the parts of the batch, e.g. a thread pool
+     * @return a new list contains the result of every sequence at its index
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the executor
+     * @throws NullPointerException if an element of the batch is null
+     * @see #toHanYuPinyinStrings(String[], HanyuPinyinOutputFormat, String, boolean, Executor)
+     */
+    static public List<String> toHanYuPinyinStrings(List<? extends CharSequence> strs,
+                                                    HanyuPinyinOutputFormat outputFormat, String separate, boolean retain,
+                                                    Executor executor) throws BadHanyuPinyinOutputFormatCombination, InterruptedException {
+        String[] results = new String[strs.size()];
+        convertBatch(strs, outputFormat, separate, retain, executor, getBatchPartCount(results.length), results);
+        return new ArrayList<String>(Arrays.asList(results));
+    }
+
+    /**
+     * @return one part per processor, of a few hundred strings at least
+     */
+    private static int getBatchPartCount(int size) {
+        return Math.min(Runtime.getRuntime().availableProcessors(),
+                (size + MIN_BATCH_PART_SIZE - 1) / MIN_BATCH_PART_SIZE);
+    }
+
+    /**
+     * Convert the batch in parts, the first one on the calling thread and the
+     * others on the executor
+     */
+    private static void convertBatch(final List<? extends CharSequence> strs, HanyuPinyinOutputFormat outputFormat,
+                                     final String separate, final boolean retain, Executor executor, int partCount,
+                                     final String[] results) throws BadHanyuPinyinOutputFormatCombination, InterruptedException {
+        final PinyinDictionary dictionary = ChineseToPinyinResource.getInstance().getDictionary();
+        // validate the format before any part runs
+        final String[] formattedSyllables = dictionary.getSyllables().getFormattedSyllables(outputFormat);
+
+        int partSize = partCount <= 1 ? results.length : (results.length + partCount - 1) / partCount;
+
+        List<Callable<Void>> parts = new ArrayList<Callable<Void>>();
+        for (int from = 0; from < results.length; from += partSize) {
+            final int start = from;
+            final int end = Math.min(from + partSize, results.length);
+            parts.add(new Callable<Void>() {
+                public Void call() {
+                    convertBatch(strs, start, end, dictionary, formattedSyllables, separate, retain, results);
+                    return null;
+                }
+            });
+        }
+        invokeAll(parts, executor);
+    }
+
+    /**
+     * Convert the strings of the batch from index <code>from</code> to
+     * <code>to - 1</code> reusing one buffer
+     */
+    private static void convertBatch(List<? extends CharSequence> strs, int from, int to,
+                                     PinyinDictionary dictionary, String[] formattedSyllables, String separate,
+                                     boolean retain, String[] results) {
+        StringBuilder buffer = new StringBuilder();
+        try {
+            for (int i = from; i < to; i++) {
+                CharSequence str = strs.get(i);
+                buffer.setLength(0);
+                appendHanYuPinyinString(dictionary, null, formattedSyllables, str, 0, str.length(), str.length(),
+                        false, separate, retain, buffer);
+                results[i] = buffer.toString();
+            }
+        } catch (BadHanyuPinyinOutputFormatCombination e) {
+            // the formatted syllables are given
+            throw new AssertionError(e);
+        } catch (IOException e) {
+            // StringBuilder never throws IOException
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Convert a long text as
+     * {@link #toHanYuPinyinString(String, HanyuPinyinOutputFormat, String, boolean)}
+     * does, splitting it into one part per processor. The result is identical
+     * to the sequential conversion: parts are only split in front of a
+     * character which continues no phrase, where the sequential conversion
+     * always starts a new word, and the phrases at the end of a part are
+     * matched across the split. Texts shorter than a few thousand characters
+     * are converted on the calling thread.
+     *
+     * @param str          A given string contains Chinese characters
+     * @param outputFormat Describes the desired format of returned Hanyu Pinyin string
+     * @param separate     The string is appended after a Chinese character (excluding
+     *                     the last Chinese character at the end of sentence)
+     * @param retain       Retain the characters that cannot be converted into pinyin characters
+     * @param executor     Runs the parts of the text, e.g. a thread pool
+     * @return the same result as the sequential conversion
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the executor
+     * @see #toHanYuPinyinString(String, HanyuPinyinOutputFormat, String, boolean)
+     */
+    static public String toHanYuPinyinString(String str, HanyuPinyinOutputFormat outputFormat, String separate,
+                                             boolean retain, Executor executor)
+            throws BadHanyuPinyinOutputFormatCombination, InterruptedException {
+        int partCount = Math.min(Runtime.getRuntime().availableProcessors(), str.length() / MIN_TEXT_PART_LENGTH);
+        return toHanYuPinyinString(str, outputFormat, separate, retain, executor, partCount);
+    }
+
+    /**
+     * Convert a long text in the given number of parts, whatever its length
+     * and the number of processors, e.g. to test how the parts are joined
+     *
+     * @param partCount the number of parts, fewer if the text has too few
+     *                  places to split at
+     */
+    static String toHanYuPinyinString(final String str, final HanyuPinyinOutputFormat outputFormat,
+                                      final String separate, final boolean retain, Executor executor, int partCount)
+            throws BadHanyuPinyinOutputFormatCombination, InterruptedException {
+        final PinyinDictionary dictionary = ChineseToPinyinResource.getInstance().getDictionary();
+        PhraseTrie phraseTrie = dictionary.getPhraseTrie();
+        final int length = str.length();
+
+        List<Callable<StringBuilder>> parts = new ArrayList<Callable<StringBuilder>>();
+        int from = 0;
+        for (int part = 1; part <= partCount && from < length; part++) {
+            int to = length;
+            if (part < partCount) {
+                to = findSplit(str, Math.max(from + 1, (int) ((long) length * part / partCount)), phraseTrie);
+            }
+            final int start = from;
+            final int end = to;
+            parts.add(new Callable<StringBuilder>() {
+                public StringBuilder call() throws BadHanyuPinyinOutputFormatCombination, IOException {
+                    StringBuilder buffer = new StringBuilder((end - start) * 4);
+                    appendHanYuPinyinString(dictionary, outputFormat, null, str, start, end, length, false, separate,
+                            retain, buffer);
+                    return buffer;
+                }
+            });
+            from = to;
+        }
+        if (parts.size() <= 1) {
+            return toHanYuPinyinString(str, outputFormat, separate, retain);
         }
 
+        List<StringBuilder> results = invokeAll(parts, executor);
+        int resultLength = 0;
+        for (StringBuilder result : results) {
+            resultLength += result.length();
+        }
+        StringBuilder resultPinyinStrBuf = new StringBuilder(resultLength);
+        for (StringBuilder result : results) {
+            resultPinyinStrBuf.append(result);
+        }
         return resultPinyinStrBuf.toString();
     }
 
+    /**
+     * @param from index to search from
+     * @return the first index from <code>from</code> where the sequential
+     * conversion certainly starts a new word; the length of the text if none
+     */
+    private static int findSplit(CharSequence str, int from, PhraseTrie phraseTrie) {
+        for (int i = from; i < str.length(); i++) {
+            char ch = str.charAt(i);
+            if (!phraseTrie.isContinuation(ch)
+                    && !(Character.isLowSurrogate(ch) && Character.isHighSurrogate(str.charAt(i - 1)))) {
+                return i;
+            }
+        }
+        return str.length();
+    }
+
+    /**
+     * Run the first part on the calling thread and the others on the
+     * executor, and wait for all of them
+     *
+     * @return the results of the parts in order
+     */
+    private static <T> List<T> invokeAll(List<Callable<T>> parts, Executor executor)
+            throws BadHanyuPinyinOutputFormatCombination, InterruptedException {
+        List<FutureTask<T>> tasks = new ArrayList<FutureTask<T>>();
+        try {
+            for (Callable<T> part : parts) {
+                tasks.add(new FutureTask<T>(part));
+            }
+            for (int i = 1; i < tasks.size(); i++) {
+                executor.execute(tasks.get(i));
+            }
+            if (!tasks.isEmpty()) {
+                tasks.get(0).run();
+            }
+
+            List<T> results = new ArrayList<T>(tasks.size());
+            for (FutureTask<T> task : tasks) {
+                try {
+                    results.add(task.get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof BadHanyuPinyinOutputFormatCombination) {
+                        throw (BadHanyuPinyinOutputFormatCombination) e.getCause();
+                    } else if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    } else if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            // no-op for the parts which are done
+            for (FutureTask<T> task : tasks) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Key of a cached conversion: the input and the options, with the output
+     * format taken by its ordinal since the format may be changed afterwards,
+     * and the generation of the user defined phrases used
+     */
+    private static final class ConversionKey {
+        private final String str;
+        private final int outputFormat;
+        private final String separate;
+        private final boolean retain;
+        private final int generation;
+        private final int hash;
+
+        ConversionKey(String str, HanyuPinyinOutputFormat outputFormat, String separate, boolean retain,
+                      int generation) {
+            this.str = str;
+            this.outputFormat = outputFormat == null ? -1 : outputFormat.ordinal();
+            this.separate = separate;
+            this.retain = retain;
+            this.generation = generation;
+            int h = str.hashCode() + generation;
+            h = h * 31 + this.outputFormat;
+            h = h * 31 + (separate == null ? 0 : separate.hashCode());
+            this.hash = h * 2 + (retain ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof ConversionKey)) return false;
+            ConversionKey other = (ConversionKey) obj;
+            return hash == other.hash && outputFormat == other.outputFormat && retain == other.retain
+                    && generation == other.generation && str.equals(other.str)
+                    && (separate == null ? other.separate == null : separate.equals(other.separate));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
     // ! Hidden constructor
     private PinyinHelper() {
     }
@@ -0,0 +1,296 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j;
+
+import java.util.Arrays;
+
+/**
+ * The readings of a text as a lattice, e.g. to emit a token graph of
+ * synonyms for a search engine. The nodes are the positions between the
+ * characters of the text, 0 to {@link #length()}, and every arc leads from a
+ * position to a later one with the syllables read over the characters in
+ * between:
+ *
+ * <ul>
+ * <li>an arc over each Chinese character for each of its readings</li>
+ * <li>an arc over each phrase of the dictionary found in the text, with the
+ * syllables of the phrase</li>
+ * </ul>
+ *
+ * The arcs chosen by
+ * {@link PinyinHelper#toHanYuPinyinString(String, net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat, String, boolean)}
+ * are marked preferred: the matched phrases and, elsewhere, the main reading
+ * of each character. A character of the CJK table without pronounciation
+ * has one arc with the syllable "none0", which the conversion writes too;
+ * other characters, e.g. punctuation, have no arcs.
+ *
+ * <p>
+ * The arcs are numbered in the order of their start, the preferred arc of a
+ * position first, then the phrases from the shortest, then the readings of
+ * the character. The lattice is held in a few int arrays, and the syllables
+ * are the shared strings of the syllable pool.
+ *
+ * <pre>
+ * for (int arc = 0; arc &lt; lattice.getArcCount(); arc++) {
+ *   for (int i = 0; i &lt; lattice.getSyllableCount(arc); i++) {
+ *     emit(lattice.getSyllable(arc, i), lattice.getStart(arc), lattice.getEnd(arc));
+ *   }
+ * }
+ * </pre>
+ *
+ * @see PinyinHelper#toHanYuPinyinLattice(String, net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat)
+ */
+public final class PinyinLattice {
+  private final int length;
+
+  /**
+   * The syllables of the dictionary in the output format, indexed by id
+   */
+  private final String[] formattedSyllables;
+
+  /**
+   * Index of the first arc starting at each position, and the number of
+   * arcs at the end
+   */
+  private final int[] firstArcs;
+
+  private final int[] starts;
+
+  private final int[] ends;
+
+  /**
+   * Bit set of the preferred arcs
+   */
+  private final long[] preferred;
+
+  /**
+   * Index in {@link #syllableIds} of the first syllable of each arc, and
+   * the number of syllables at the end
+   */
+  private final int[] firstSyllables;
+
+  private final int[] syllableIds;
+
+  /**
+   * Segment the text by {@link WordMatch} as
+   * {@link PinyinHelper#toHanYuPinyinString(String, net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat, String, boolean)}
+   * does, then collect the arcs of every position
+   */
+  PinyinLattice(PinyinDictionary dictionary, String[] formattedSyllables, CharSequence str) {
+    UnicodeToHanyuPinyinTable table = dictionary.getUnicodeToHanyuPinyinTable();
+    PhraseTrie phraseTrie = dictionary.getPhraseTrie();
+    int limit = str.length();
+
+    // the phrase node of the preferred arc at each position, -1 for the main reading
+    int[] preferredNodes = new int[limit];
+    int[] preferredEnds = new int[limit];
+    WordMatch match = new WordMatch(phraseTrie);
+    for (int i = 0; i < limit; i = match.end) {
+      match.match(str, i, limit);
+      preferredNodes[i] = match.node;
+      preferredEnds[i] = match.end;
+      // the positions within the word keep no preferred arc
+      for (int j = i + 1; j < match.end; j++) {
+        preferredNodes[j] = -1;
+        preferredEnds[j] = -1;
+      }
+    }
+
+    Builder builder = new Builder(limit);
+    for (int i = 0; i < limit; i++) {
+      builder.firstArcs[i] = builder.arcCount;
+      if (Character.isLowSurrogate(str.charAt(i)) && i > 0
+          && Character.isHighSurrogate(str.charAt(i - 1))) {
+        // within a surrogate pair
+        continue;
+      }
+
+      int preferredNode = preferredNodes[i];
+      if (preferredNode != -1) {
+        builder.addArc(i, preferredEnds[i], true);
+        for (int j = 0; j < phraseTrie.getValueLength(preferredNode); j++) {
+          builder.addSyllable(phraseTrie.getValueId(preferredNode, j));
+        }
+      }
+
+      // the other phrases from the shortest
+      int currentNode = phraseTrie.getChild(PhraseTrie.ROOT, str.charAt(i));
+      int current = i + 1;
+      while (currentNode != -1 && phraseTrie.hasChildren(currentNode) && current < limit) {
+        currentNode = phraseTrie.getChild(currentNode, str.charAt(current));
+        current++;
+        if (currentNode != -1 && currentNode != preferredNode
+            && phraseTrie.getValueLength(currentNode) > 0) {
+          builder.addArc(i, current, false);
+          for (int j = 0; j < phraseTrie.getValueLength(currentNode); j++) {
+            builder.addSyllable(phraseTrie.getValueId(currentNode, j));
+          }
+        }
+      }
+
+      int codePoint = Character.codePointAt(str, i);
+      // a character without pronounciation has the reading "none0"
+      if (table.getReadingCount(codePoint) > 0) {
+        int end = i + Character.charCount(codePoint);
+        for (int r = 0; r < table.getReadingCount(codePoint); r++) {
+          builder.addArc(i, end, 0 == r && preferredEnds[i] == end && preferredNode == -1);
+          builder.addSyllable(table.getReadingId(codePoint, r));
+        }
+      }
+    }
+    builder.firstArcs[limit] = builder.arcCount;
+    // a sentinel closing the syllables of the last arc
+    builder.addArc(limit, limit, false);
+
+    this.length = limit;
+    this.formattedSyllables = formattedSyllables;
+    this.firstArcs = builder.firstArcs;
+    this.starts = builder.starts;
+    this.ends = builder.ends;
+    this.preferred = builder.preferred;
+    this.firstSyllables = builder.firstSyllables;
+    this.syllableIds = builder.syllableIds;
+  }
+
+  /**
+   * Growing arrays of the arcs, added in order
+   */
+  private static final class Builder {
+    final int[] firstArcs;
+
+    int[] starts;
+
+    int[] ends;
+
+    long[] preferred;
+
+    int[] firstSyllables;
+
+    int[] syllableIds;
+
+    int arcCount;
+
+    int syllableCount;
+
+    Builder(int length) {
+      firstArcs = new int[length + 1];
+      starts = new int[length + 1];
+      ends = new int[length + 1];
+      preferred = new long[(length >> 6) + 1];
+      firstSyllables = new int[length + 1];
+      syllableIds = new int[length + 1];
+    }
+
+    void addArc(int start, int end, boolean isPreferred) {
+      if (arcCount == starts.length) {
+        int capacity = arcCount * 2;
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        firstSyllables = Arrays.copyOf(firstSyllables, capacity);
+        preferred = Arrays.copyOf(preferred, (capacity >> 6) + 1);
+      }
+      starts[arcCount] = start;
+      ends[arcCount] = end;
+      firstSyllables[arcCount] = syllableCount;
+      if (isPreferred) {
+        preferred[arcCount >> 6] |= 1L << arcCount;
+      }
+      arcCount++;
+    }
+
+    void addSyllable(int id) {
+      if (syllableCount == syllableIds.length) {
+        syllableIds = Arrays.copyOf(syllableIds, syllableCount * 2);
+      }
+      syllableIds[syllableCount++] = id;
+    }
+  }
+
+  /**
+   * @return the number of characters of the text, the last position
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * @return the number of arcs
+   */
+  public int getArcCount() {
+    return firstArcs[length];
+  }
+
+  /**
+   * @param position
+   *            a position, 0 to {@link #length()}
+   * @return index of the first arc starting at the position or later; the
+   *         arcs starting at the position are those before
+   *         <code>getFirstArc(position + 1)</code>
+   */
+  public int getFirstArc(int position) {
+    return firstArcs[position];
+  }
+
+  /**
+   * @return the position the arc starts at
+   */
+  public int getStart(int arc) {
+    checkArc(arc);
+    return starts[arc];
+  }
+
+  /**
+   * @return the position the arc ends at
+   */
+  public int getEnd(int arc) {
+    checkArc(arc);
+    return ends[arc];
+  }
+
+  /**
+   * @return true if the conversion of the text takes the arc
+   */
+  public boolean isPreferred(int arc) {
+    checkArc(arc);
+    return (preferred[arc >> 6] & (1L << arc)) != 0;
+  }
+
+  /**
+   * @return the number of syllables of the arc, 1 for a character
+   */
+  public int getSyllableCount(int arc) {
+    checkArc(arc);
+    return firstSyllables[arc + 1] - firstSyllables[arc];
+  }
+
+  /**
+   * @param index
+   *            index of the syllable, less than {@link #getSyllableCount(int)}
+   * @return the formatted syllable, shared and not allocated
+   */
+  public String getSyllable(int arc, int index) {
+    if (index < 0 || index >= getSyllableCount(arc)) {
+      throw new IndexOutOfBoundsException("syllable " + index + " of arc " + arc);
+    }
+    return formattedSyllables[syllableIds[firstSyllables[arc] + index]];
+  }
+
+  private void checkArc(int arc) {
+    if (arc < 0 || arc >= firstArcs[length]) {
+      throw new IndexOutOfBoundsException("arc " + arc + " of " + firstArcs[length]);
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A matrix of syllables, one row per syllable and one column per
+ * Romanization system, compiled from one of the <code>pinyin_*mapping.xml</code>
+ * files.
+ *
+ * <p>
+ * Every column is indexed by value, so translating a syllable from one column
+ * to another is a hash lookup followed by an array load. When a value occurs
+ * more than once in a column the first row wins, which is what the former
+ * XPath query <code>//Column[text()='value']</code> selected.
+ *
+ */
+final class PinyinMappingTable {
+  /**
+   * Leading bytes of the compiled form, "PYMT"
+   */
+  private static final int MAGIC = 0x50594D54;
+
+  private final String[] columnNames;
+
+  /**
+   * Cells indexed by row and then by column; a cell is null if the source
+   * has no value for it
+   */
+  private final String[][] cells;
+
+  /**
+   * Row of the first occurrence of every value, one map per column
+   */
+  private final List<Map<String, Integer>> rowIndex;
+
+  PinyinMappingTable(String[] columnNames, String[][] cells) {
+    this.columnNames = columnNames;
+    this.cells = cells;
+    this.rowIndex = new ArrayList<Map<String, Integer>>(columnNames.length);
+    for (int column = 0; column < columnNames.length; column++) {
+      Map<String, Integer> rows = new HashMap<String, Integer>(cells.length * 2);
+      for (int row = 0; row < cells.length; row++) {
+        String value = cells[row][column];
+        if (null != value && !rows.containsKey(value)) {
+          rows.put(value, row);
+        }
+      }
+      rowIndex.add(rows);
+    }
+  }
+
+  /**
+   * @return the number of syllables
+   */
+  int getRowCount() {
+    return cells.length;
+  }
+
+  /**
+   * @param columnName
+   *            tag name of the column in the mapping file, e.g. "Wade"
+   * @return index of the column; -1 if there is no such column
+   */
+  int getColumn(String columnName) {
+    for (int i = 0; i < columnNames.length; i++) {
+      if (columnNames[i].equals(columnName)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @param column
+   *            index of the column
+   * @param value
+   *            syllable without tone number
+   * @return the first row containing the value in the given column; -1 if not
+   *         found
+   */
+  int getRow(int column, String value) {
+    Integer row = rowIndex.get(column).get(value);
+    return null == row ? -1 : row;
+  }
+
+  /**
+   * @return the syllable at the given row and column; null if absent
+   */
+  String get(int row, int column) {
+    return cells[row][column];
+  }
+
+  /**
+   * @param value
+   *            syllable without tone number
+   * @param sourceColumn
+   *            column containing the value
+   * @param targetColumn
+   *            column to translate to
+   * @return the value of the target column in the row found; null if the
+   *         value is not found
+   */
+  String translate(String value, int sourceColumn, int targetColumn) {
+    int row = getRow(sourceColumn, value);
+    return -1 == row ? null : cells[row][targetColumn];
+  }
+
+  /**
+   * Write the compiled form of the table, read back by {@link #read(InputStream)}
+   *
+   * @param outStream
+   *            output stream, not closed
+   * @throws IOException
+   */
+  void write(OutputStream outStream) throws IOException {
+    DataOutputStream out = new DataOutputStream(outStream);
+    out.writeInt(MAGIC);
+    out.writeInt(columnNames.length);
+    for (String columnName : columnNames) {
+      out.writeUTF(columnName);
+    }
+    out.writeInt(cells.length);
+    for (String[] row : cells) {
+      for (String cell : row) {
+        out.writeBoolean(null != cell);
+        if (null != cell) {
+          out.writeUTF(cell);
+        }
+      }
+    }
+    out.flush();
+  }
+
+  /**
+   * @param inStream
+   *            input stream of the compiled form, closed when done
+   * @return the table
+   * @throws IOException
+   *             if the stream can not be read or is not a compiled table
+   */
+  static PinyinMappingTable read(InputStream inStream) throws IOException {
+    DataInputStream in = new DataInputStream(inStream);
+    try {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("not a compiled pinyin mapping");
+      }
+      String[] columnNames = new String[in.readInt()];
+      for (int i = 0; i < columnNames.length; i++) {
+        columnNames[i] = in.readUTF();
+      }
+      String[][] cells = new String[in.readInt()][columnNames.length];
+      for (String[] row : cells) {
+        for (int i = 0; i < row.length; i++) {
+          row[i] = in.readBoolean() ? in.readUTF() : null;
+        }
+      }
+      return new PinyinMappingTable(columnNames, cells);
+    } finally {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j;
+
+/**
+ * Receives the measurements of pinyin4j, set with
+ * {@link PinyinHelper#setMetrics(PinyinMetrics)}, e.g. to export them to the
+ * metrics registry of an application. {@link CountingPinyinMetrics} counts
+ * them with little contention; an implementation may as well forward them to
+ * any other library.
+ *
+ * <p>
+ * The methods are called on the converting threads, so they must be thread
+ * safe and return quickly. By default the measurements are discarded by
+ * {@link #NONE}, and the conversions skip measuring altogether.
+ *
+ */
+public interface PinyinMetrics {
+  /**
+   * Discards all measurements
+   */
+  PinyinMetrics NONE = new PinyinMetrics() {
+    public void converted(int characters, long nanos) {
+    }
+
+    public void phraseMatched(int length) {
+    }
+
+    public void unknownCharacters(int count) {
+    }
+
+    public void cacheHit() {
+    }
+
+    public void cacheMiss() {
+    }
+
+    public void resourceLoaded(String resource, long nanos) {
+    }
+
+    public void resourceFailed(String resource, Throwable cause) {
+    }
+  };
+
+  /**
+   * A text, or a part of it, has been converted into Hanyu Pinyin
+   *
+   * @param characters
+   *            the number of characters converted
+   * @param nanos
+   *            the time taken
+   */
+  void converted(int characters, long nanos);
+
+  /**
+   * A phrase of the dictionary has been matched
+   *
+   * @param length
+   *            the number of characters of the phrase
+   */
+  void phraseMatched(int length);
+
+  /**
+   * Characters without Hanyu Pinyin have been retained or dropped
+   *
+   * @param count
+   *            the number of characters
+   */
+  void unknownCharacters(int count);
+
+  /**
+   * A conversion has been found in the {@link PinyinCache}
+   */
+  void cacheHit();
+
+  /**
+   * A conversion has not been found in the {@link PinyinCache}
+   */
+  void cacheMiss();
+
+  /**
+   * A resource has been loaded, which happens once, on first use, except
+   * for the user defined phrases which are loaded again on every reload
+   *
+   * @param resource
+   *            the path of the resource, or of the user defined phrases when
+   *            they are reloaded
+   * @param nanos
+   *            the time taken
+   */
+  void resourceLoaded(String resource, long nanos);
+
+  /**
+   * The user defined phrases could not be reloaded in the background, see
+   * {@link PinyinHelper#watchUserDictionary}; the previous ones are kept and
+   * the reload is tried again on the next check
+   *
+   * @param resource
+   *            the path of the user defined phrases
+   * @param cause
+   *            the failure
+   */
+  void resourceFailed(String resource, Throwable cause);
+}
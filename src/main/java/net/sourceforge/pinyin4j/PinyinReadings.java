@@ -0,0 +1,191 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Enumerates the readings of a string, combining the candidate syllables of
+ * its characters, see
+ * {@link PinyinHelper#toHanYuPinyinReadings(String, net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat, String, boolean, int)}.
+ *
+ * <p>
+ * The string is segmented once by {@link WordMatch}, as
+ * {@link PinyinHelper#toHanYuPinyinString(String, net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat, String, boolean)}
+ * does, into slots taking one syllable each and the literal text between
+ * them: retained characters and separators. The candidates of a slot are
+ * the syllable of the matched phrase or the main reading first, then the
+ * other readings of the character, without duplicates. Readings are then
+ * composed one at a time, the last slot varying fastest, so only the
+ * segmentation and the readings already returned are held.
+ *
+ */
+final class PinyinReadings implements Iterator<String> {
+  /**
+   * Literal text before each slot, and after the last one
+   */
+  private final String[] literals;
+
+  /**
+   * Candidate syllables of each slot, the preferred one first
+   */
+  private final String[][] candidates;
+
+  /**
+   * Index of the current candidate of each slot
+   */
+  private final int[] choices;
+
+  private final int maxReadings;
+
+  /**
+   * Readings returned so far, to skip equal compositions
+   */
+  private final Set<String> returned = new HashSet<String>();
+
+  /**
+   * The reading to return next; null if there is none
+   */
+  private String next;
+
+  /**
+   * @param formattedSyllables
+   *            the syllables of the dictionary in the output format, indexed
+   *            by id
+   * @param maxReadings
+   *            the number of readings returned at most
+   */
+  PinyinReadings(PinyinDictionary dictionary, String[] formattedSyllables, String str,
+      String separate, boolean retain, int maxReadings) {
+    UnicodeToHanyuPinyinTable table = dictionary.getUnicodeToHanyuPinyinTable();
+    PhraseTrie phraseTrie = dictionary.getPhraseTrie();
+    List<String> literalList = new ArrayList<String>();
+    List<String[]> candidateList = new ArrayList<String[]>();
+    StringBuilder literal = new StringBuilder();
+
+    WordMatch match = new WordMatch(phraseTrie);
+    int limit = str.length();
+    for (int i = 0; i < limit; i = match.end) {
+      match.match(str, i, limit);
+      if (match.node == -1) {
+        if (table.getReadingCount(match.codePoint) == 0) {
+          if (retain) literal.append(str, i, match.end);
+        } else {
+          literalList.add(literal.toString());
+          literal.setLength(0);
+          candidateList.add(getCandidates(table, formattedSyllables,
+              table.getReadingId(match.codePoint, 0), match.codePoint));
+          if (match.separated) {
+            literal.append(separate);
+          }
+        }
+      } else {
+        int pinyinCount = phraseTrie.getValueLength(match.node);
+        // a syllable per character, which may have other readings
+        boolean aligned = pinyinCount == match.end - i;
+        for (int j = 0; j < pinyinCount; j++) {
+          literalList.add(literal.toString());
+          literal.setLength(0);
+          candidateList.add(getCandidates(table, formattedSyllables,
+              phraseTrie.getValueId(match.node, j), aligned ? str.charAt(i + j) : -1));
+          if (match.separated || j < pinyinCount - 1) {
+            literal.append(separate);
+          }
+        }
+      }
+    }
+    literalList.add(literal.toString());
+
+    this.literals = literalList.toArray(new String[literalList.size()]);
+    this.candidates = candidateList.toArray(new String[candidateList.size()][]);
+    this.choices = new int[candidates.length];
+    this.maxReadings = maxReadings;
+    this.next = compose();
+  }
+
+  /**
+   * @param preferredId
+   *            id of the syllable of the phrase or of the main reading
+   * @param codePoint
+   *            the character whose other readings follow; -1 for none
+   */
+  private static String[] getCandidates(UnicodeToHanyuPinyinTable table,
+      String[] formattedSyllables, int preferredId, int codePoint) {
+    List<String> slot = new ArrayList<String>();
+    slot.add(formattedSyllables[preferredId]);
+    int count = codePoint < 0 ? 0 : table.getReadingCount(codePoint);
+    for (int i = 0; i < count; i++) {
+      String candidate = formattedSyllables[table.getReadingId(codePoint, i)];
+      if (!slot.contains(candidate)) {
+        slot.add(candidate);
+      }
+    }
+    return slot.toArray(new String[slot.size()]);
+  }
+
+  public boolean hasNext() {
+    return next != null;
+  }
+
+  public String next() {
+    if (null == next) {
+      throw new NoSuchElementException();
+    }
+    String result = next;
+    returned.add(result);
+    next = null;
+    while (returned.size() < maxReadings && advance()) {
+      String reading = compose();
+      if (!returned.contains(reading)) {
+        next = reading;
+        break;
+      }
+    }
+    return result;
+  }
+
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Move to the next combination of candidates
+   *
+   * @return false if all combinations have been composed
+   */
+  private boolean advance() {
+    for (int slot = choices.length - 1; slot >= 0; slot--) {
+      if (++choices[slot] < candidates[slot].length) {
+        return true;
+      }
+      choices[slot] = 0;
+    }
+    return false;
+  }
+
+  private String compose() {
+    StringBuilder reading = new StringBuilder(literals.length * 8);
+    for (int slot = 0; slot < choices.length; slot++) {
+      reading.append(literals[slot]).append(candidates[slot][choices[slot]]);
+    }
+    return reading.append(literals[choices.length]).toString();
+  }
+}
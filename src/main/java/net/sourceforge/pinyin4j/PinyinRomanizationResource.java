@@ -15,13 +15,8 @@
 
 package net.sourceforge.pinyin4j;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
 
-import com.hp.hpl.sparta.Document;
-import com.hp.hpl.sparta.ParseException;
-import com.hp.hpl.sparta.Parser;
-
 /**
  * Contains the resource supporting translations among different Chinese
  * Romanization systems
@@ -31,51 +26,46 @@ import com.hp.hpl.sparta.Parser;
  */
 class PinyinRomanizationResource {
   /**
-   * A DOM model contains variable pinyin presentations
-   */
-  private Document pinyinMappingDoc;
-
-  /**
-   * @param pinyinMappingDoc
-   *            The pinyinMappingDoc to set.
+   * A matrix contains variable pinyin presentations, immutable once loaded
    */
-  private void setPinyinMappingDoc(Document pinyinMappingDoc) {
-    this.pinyinMappingDoc = pinyinMappingDoc;
-  }
+  private final PinyinMappingTable pinyinMappingTable;
 
   /**
-   * @return Returns the pinyinMappingDoc.
+   * @return Returns the pinyinMappingTable.
    */
-  Document getPinyinMappingDoc() {
-    return pinyinMappingDoc;
+  PinyinMappingTable getPinyinMappingTable() {
+    return pinyinMappingTable;
   }
 
   /**
    * Private constructor as part of the singleton pattern.
    */
   private PinyinRomanizationResource() {
-    initializeResource();
+    long startTime = System.nanoTime();
+    pinyinMappingTable = loadResource();
+    PinyinHelper.getMetrics().resourceLoaded(ResourceCompiler.PINYIN_MAPPING,
+        System.nanoTime() - startTime);
   }
 
   /**
-   * Initialiez a DOM contains variable PinYin representations
+   * Load the matrix compiled at build time, or parse the XML mapping if the
+   * compiled resource is not available. The XML parser is only linked in the
+   * latter case, so the class must not refer to its classes.
+   *
+   * @return the matrix; null if it can not be loaded
    */
-  private void initializeResource() {
+  private static PinyinMappingTable loadResource() {
     try {
-      final String mappingFileName = "/pinyindb/pinyin_mapping.xml";
-      final String systemId = "";
-
-      // Parse file to DOM Document
-      setPinyinMappingDoc(Parser.parse(systemId, ResourceHelper
-          .getResourceInputStream(mappingFileName)));
-
-    } catch (FileNotFoundException ex) {
-      ex.printStackTrace();
+      if (ResourceHelper.hasResource(ResourceCompiler.PINYIN_MAPPING)) {
+        return PinyinMappingTable.read(ResourceHelper
+            .getResourceInputStream(ResourceCompiler.PINYIN_MAPPING));
+      } else {
+        return ResourceCompiler.parsePinyinMapping();
+      }
     } catch (IOException ex) {
       ex.printStackTrace();
-    } catch (ParseException e) {
-      e.printStackTrace();
     }
+    return null;
   }
 
   /**
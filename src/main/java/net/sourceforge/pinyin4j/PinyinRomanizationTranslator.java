@@ -18,10 +18,6 @@
  */
 package net.sourceforge.pinyin4j;
 
-import com.hp.hpl.sparta.Document;
-import com.hp.hpl.sparta.Element;
-import com.hp.hpl.sparta.ParseException;
-
 /**
  * Contains the logic translating among different Chinese Romanization systems
  * 
@@ -48,26 +44,18 @@ class PinyinRomanizationTranslator {
     String pinyinString = TextHelper.extractPinyinString(sourcePinyinStr);
     String toneNumberStr = TextHelper.extractToneNumber(sourcePinyinStr);
 
-    // return value
-    String targetPinyinStr = null;
-    try {
-      // find the node of source Pinyin system
-      String xpathQuery1 =
-          "//" + sourcePinyinSystem.getTagName() + "[text()='" + pinyinString + "']";
-
-      Document pinyinMappingDoc = PinyinRomanizationResource.getInstance().getPinyinMappingDoc();
+    PinyinMappingTable pinyinMappingTable =
+        PinyinRomanizationResource.getInstance().getPinyinMappingTable();
 
-      Element hanyuNode = pinyinMappingDoc.xpathSelectElement(xpathQuery1);
+    // find the row of source Pinyin system and the cell of target Pinyin system
+    String targetPinyinStrWithoutToneNumber =
+        pinyinMappingTable.translate(pinyinString, pinyinMappingTable.getColumn(sourcePinyinSystem
+            .getTagName()), pinyinMappingTable.getColumn(targetPinyinSystem.getTagName()));
 
-      if (null != hanyuNode) {
-        // find the node of target Pinyin system
-        String xpathQuery2 = "../" + targetPinyinSystem.getTagName() + "/text()";
-        String targetPinyinStrWithoutToneNumber = hanyuNode.xpathSelectString(xpathQuery2);
-
-        targetPinyinStr = targetPinyinStrWithoutToneNumber + toneNumberStr;
-      }
-    } catch (ParseException e) {
-      e.printStackTrace();
+    // return value
+    String targetPinyinStr = null;
+    if (null != targetPinyinStrWithoutToneNumber) {
+      targetPinyinStr = targetPinyinStrWithoutToneNumber + toneNumberStr;
     }
 
     return targetPinyinStr;
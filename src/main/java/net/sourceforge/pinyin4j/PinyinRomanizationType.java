@@ -25,41 +25,54 @@ package net.sourceforge.pinyin4j;
  * 
  */
 class PinyinRomanizationType {
+  /**
+   * The number of Romanization systems
+   */
+  static final int COUNT = 6;
+
   /**
    * Hanyu Pinyin system
    */
-  static final PinyinRomanizationType HANYU_PINYIN = new PinyinRomanizationType("Hanyu");
+  static final PinyinRomanizationType HANYU_PINYIN = new PinyinRomanizationType("Hanyu", 0);
 
   /**
    * Wade-Giles Pinyin system
    */
-  static final PinyinRomanizationType WADEGILES_PINYIN = new PinyinRomanizationType("Wade");
+  static final PinyinRomanizationType WADEGILES_PINYIN = new PinyinRomanizationType("Wade", 1);
 
   /**
    * Mandarin Phonetic Symbols 2 (MPS2) Pinyin system
    */
-  static final PinyinRomanizationType MPS2_PINYIN = new PinyinRomanizationType("MPSII");
+  static final PinyinRomanizationType MPS2_PINYIN = new PinyinRomanizationType("MPSII", 2);
 
   /**
    * Yale Pinyin system
    */
-  static final PinyinRomanizationType YALE_PINYIN = new PinyinRomanizationType("Yale");
+  static final PinyinRomanizationType YALE_PINYIN = new PinyinRomanizationType("Yale", 3);
 
   /**
    * Tongyong Pinyin system
    */
-  static final PinyinRomanizationType TONGYONG_PINYIN = new PinyinRomanizationType("Tongyong");
+  static final PinyinRomanizationType TONGYONG_PINYIN = new PinyinRomanizationType("Tongyong", 4);
 
   /**
    * Gwoyeu Romatzyh system
    */
-  static final PinyinRomanizationType GWOYEU_ROMATZYH = new PinyinRomanizationType("Gwoyeu");
+  static final PinyinRomanizationType GWOYEU_ROMATZYH = new PinyinRomanizationType("Gwoyeu", 5);
 
   /**
    * Constructor
    */
-  protected PinyinRomanizationType(String tagName) {
+  protected PinyinRomanizationType(String tagName, int ordinal) {
     setTagName(tagName);
+    this.ordinal = ordinal;
+  }
+
+  /**
+   * @return Returns the ordinal, an index less than {@link #COUNT}.
+   */
+  int ordinal() {
+    return ordinal;
   }
 
   /**
@@ -78,4 +91,6 @@ class PinyinRomanizationType {
   }
 
   protected String tagName;
+
+  private final int ordinal;
 }
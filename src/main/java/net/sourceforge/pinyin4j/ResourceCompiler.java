@@ -0,0 +1,213 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.hp.hpl.sparta.Document;
+import com.hp.hpl.sparta.Element;
+import com.hp.hpl.sparta.Node;
+import com.hp.hpl.sparta.ParseException;
+import com.hp.hpl.sparta.Parser;
+import com.hp.hpl.sparta.Text;
+
+/**
+ * Compiles the text and XML resources of pinyin4j into the binary forms loaded
+ * at runtime. It is run by the build after the classes are compiled:
+ *
+ * <pre>
+ * java net.sourceforge.pinyin4j.ResourceCompiler target/classes
+ * </pre>
+ *
+ * <p>
+ * The sources stay the reference; when a compiled resource is missing from
+ * the class path the runtime falls back to parsing its source.
+ *
+ */
+public final class ResourceCompiler {
+  /**
+   * Source of the translations among Romanization systems
+   */
+  static final String PINYIN_MAPPING_SOURCE = "/pinyindb/pinyin_mapping.xml";
+
+  /**
+   * Compiled form of {@link #PINYIN_MAPPING_SOURCE}
+   */
+  static final String PINYIN_MAPPING = "/pinyindb/pinyin_mapping.dat";
+
+  /**
+   * Columns of {@link #PINYIN_MAPPING}, the tag names of
+   * {@link PinyinRomanizationType}
+   */
+  static final String[] PINYIN_MAPPING_COLUMNS = new String[] {
+      PinyinRomanizationType.HANYU_PINYIN.getTagName(),
+      PinyinRomanizationType.WADEGILES_PINYIN.getTagName(),
+      PinyinRomanizationType.MPS2_PINYIN.getTagName(),
+      PinyinRomanizationType.YALE_PINYIN.getTagName(),
+      PinyinRomanizationType.TONGYONG_PINYIN.getTagName()};
+
+  /**
+   * Source of the translations from Hanyu Pinyin to Gwoyeu Romatzyh
+   */
+  static final String GWOYEU_MAPPING_SOURCE = "/pinyindb/pinyin_gwoyeu_mapping.xml";
+
+  /**
+   * Compiled form of {@link #GWOYEU_MAPPING_SOURCE}
+   */
+  static final String GWOYEU_MAPPING = "/pinyindb/pinyin_gwoyeu_mapping.dat";
+
+  /**
+   * Columns of {@link #GWOYEU_MAPPING}; Gwoyeu Romatzyh spells the tone, so
+   * column <i>n</i> holds the syllable in tone <i>n</i>
+   */
+  static final String[] GWOYEU_MAPPING_COLUMNS = new String[] {
+      PinyinRomanizationType.HANYU_PINYIN.getTagName(),
+      PinyinRomanizationType.GWOYEU_ROMATZYH.getTagName() + "_I",
+      PinyinRomanizationType.GWOYEU_ROMATZYH.getTagName() + "_II",
+      PinyinRomanizationType.GWOYEU_ROMATZYH.getTagName() + "_III",
+      PinyinRomanizationType.GWOYEU_ROMATZYH.getTagName() + "_IV",
+      PinyinRomanizationType.GWOYEU_ROMATZYH.getTagName() + "_V"};
+
+  private ResourceCompiler() {}
+
+  /**
+   * @param args
+   *            the output directory, usually <code>target/classes</code>
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("Usage: java " + ResourceCompiler.class.getName() + " <output directory>");
+      System.exit(1);
+    }
+    File outputDirectory = new File(args[0]);
+
+    OutputStream out = create(outputDirectory, ChineseToPinyinResource.DICTIONARY);
+    try {
+      ChineseToPinyinResource.compileDictionary().write(out);
+    } finally {
+      out.close();
+    }
+
+    out = create(outputDirectory, PINYIN_MAPPING);
+    try {
+      parsePinyinMapping().write(out);
+    } finally {
+      out.close();
+    }
+
+    out = create(outputDirectory, GWOYEU_MAPPING);
+    try {
+      parseGwoyeuMapping().write(out);
+    } finally {
+      out.close();
+    }
+  }
+
+  private static OutputStream create(File outputDirectory, String resourceName)
+      throws IOException {
+    File file = new File(outputDirectory, resourceName.substring(1));
+    file.getParentFile().mkdirs();
+    return new BufferedOutputStream(new FileOutputStream(file));
+  }
+
+  /**
+   * @return the table parsed from {@link #PINYIN_MAPPING_SOURCE}
+   */
+  static PinyinMappingTable parsePinyinMapping() throws IOException {
+    return parseMapping(ResourceHelper.getResourceInputStream(PINYIN_MAPPING_SOURCE),
+        PINYIN_MAPPING_COLUMNS);
+  }
+
+  /**
+   * @return the table parsed from {@link #GWOYEU_MAPPING_SOURCE}
+   */
+  static PinyinMappingTable parseGwoyeuMapping() throws IOException {
+    return parseMapping(ResourceHelper.getResourceInputStream(GWOYEU_MAPPING_SOURCE),
+        GWOYEU_MAPPING_COLUMNS);
+  }
+
+  /**
+   * Parse a mapping file which contains one <code>item</code> element per
+   * syllable, e.g.
+   *
+   * <pre>
+   * &lt;item&gt;&lt;Hanyu&gt;a&lt;/Hanyu&gt;&lt;Wade&gt;a&lt;/Wade&gt;...&lt;/item&gt;
+   * </pre>
+   *
+   * @param inStream
+   *            the XML source, closed when done
+   * @param columnNames
+   *            tag names to collect, other tags are ignored
+   * @throws IOException
+   *             if the source can not be read or is not well formed; the
+   *             parser's own exception is wrapped so callers need not link
+   *             the parser classes
+   */
+  static PinyinMappingTable parseMapping(InputStream inStream, String[] columnNames)
+      throws IOException {
+    Document document;
+    try {
+      document = Parser.parse("", inStream);
+    } catch (ParseException e) {
+      IOException ex = new IOException(e.getMessage());
+      ex.initCause(e);
+      throw ex;
+    } finally {
+      inStream.close();
+    }
+
+    List<String[]> rows = new ArrayList<String[]>();
+    for (Node item = document.getDocumentElement().getFirstChild(); null != item; item =
+        item.getNextSibling()) {
+      if (!(item instanceof Element)) continue;
+
+      String[] row = new String[columnNames.length];
+      for (Node cell = ((Element) item).getFirstChild(); null != cell; cell = cell.getNextSibling()) {
+        if (!(cell instanceof Element)) continue;
+
+        String tagName = ((Element) cell).getTagName();
+        for (int i = 0; i < columnNames.length; i++) {
+          if (columnNames[i].equals(tagName) && null == row[i]) {
+            row[i] = getText((Element) cell);
+          }
+        }
+      }
+      rows.add(row);
+    }
+    return new PinyinMappingTable(columnNames, rows.toArray(new String[rows.size()][]));
+  }
+
+  /**
+   * @return the text content of the element; null if it has none
+   */
+  private static String getText(Element element) {
+    StringBuilder text = null;
+    for (Node node = element.getFirstChild(); null != node; node = node.getNextSibling()) {
+      if (node instanceof Text) {
+        if (null == text) text = new StringBuilder();
+        text.append(((Text) node).getData());
+      }
+    }
+    return null == text ? null : text.toString();
+  }
+}
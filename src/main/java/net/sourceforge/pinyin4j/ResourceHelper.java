@@ -32,4 +32,12 @@ class ResourceHelper {
   static BufferedInputStream getResourceInputStream(String resourceName) {
     return new BufferedInputStream(ResourceHelper.class.getResourceAsStream(resourceName));
   }
+
+  /**
+   * @param resourceName
+   * @return true if the resource can be found on the class path
+   */
+  static boolean hasResource(String resourceName) {
+    return null != ResourceHelper.class.getResource(resourceName);
+  }
 }
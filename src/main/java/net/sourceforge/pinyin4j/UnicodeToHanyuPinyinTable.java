@@ -0,0 +1,422 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A table contains the Hanyu Pinyin readings of every Unicode code point: a
+ * dense part for the Basic Multilingual Plane and a sparse two-level part for
+ * the supplementary planes.
+ *
+ * <p>
+ * The dense part is indexed directly by the code point of a character. Each
+ * character owns a (possibly empty) run of syllable ids, and every id refers to
+ * an unformatted syllable in a pool shared by all characters. Looking up a
+ * character therefore costs two array loads and never allocates or locks.
+ *
+ * <p>
+ * The supplementary planes are split into blocks of {@link #BLOCK_SIZE} code
+ * points. A first level maps every block to its run of offsets, which is only
+ * present if some code point of the block has readings, so entries of CJK
+ * Extension B and later cost one more array load and take no space in the
+ * dense part. The arrays are either on the heap or views of a memory mapped
+ * dictionary file.
+ *
+ * <p>
+ * Instances are immutable once built, see {@link Builder}.
+ *
+ */
+final class UnicodeToHanyuPinyinTable {
+  /**
+   * The number of code points covered by the dense part of the table
+   */
+  static final int SIZE = Character.MAX_VALUE + 1;
+
+  private static final int BLOCK_BITS = 8;
+
+  /**
+   * The number of code points of a block of the supplementary part
+   */
+  static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+
+  private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+  /**
+   * The number of blocks in the Basic Multilingual Plane, which are not in
+   * the supplementary part
+   */
+  private static final int BMP_BLOCK_COUNT = SIZE >> BLOCK_BITS;
+
+  /**
+   * The number of blocks of the supplementary planes
+   */
+  private static final int SUPPLEMENTARY_BLOCK_COUNT =
+      ((Character.MAX_CODE_POINT + 1) >> BLOCK_BITS) - BMP_BLOCK_COUNT;
+
+  /**
+   * {@link #blocks} of a block without readings
+   */
+  private static final int NO_BLOCK = -1;
+
+  /**
+   * The syllable of characters which exist in Unicode CJK table but have no
+   * pronounciation in Chinese
+   */
+  static final String NONE = "none0";
+
+  /**
+   * All distinct unformatted syllables, e.g. "zhong1", "lu:4"
+   */
+  private final HanyuPinyinSyllables syllables;
+
+  /**
+   * Readings of code point <code>c</code> are
+   * <code>readings[offsets[c]]</code> to
+   * <code>readings[offsets[c + 1] - 1]</code>
+   */
+  private final IntBuffer offsets;
+
+  /**
+   * Index of every supplementary block in
+   * {@link #supplementaryOffsets}, in units of {@link #BLOCK_SIZE};
+   * {@link #NO_BLOCK} if no code point of the block has readings
+   */
+  private final IntBuffer blocks;
+
+  /**
+   * Offsets of the present supplementary blocks, like {@link #offsets}
+   */
+  private final IntBuffer supplementaryOffsets;
+
+  /**
+   * Indices into {@link #syllables}
+   */
+  private final CharBuffer readings;
+
+  /**
+   * Id of {@link #NONE} in the syllable pool; -1 if not present
+   */
+  private final int noneId;
+
+  private UnicodeToHanyuPinyinTable(HanyuPinyinSyllables syllables, IntBuffer offsets,
+      IntBuffer blocks, IntBuffer supplementaryOffsets, CharBuffer readings) {
+    this.syllables = syllables;
+    this.offsets = offsets;
+    this.blocks = blocks;
+    this.supplementaryOffsets = supplementaryOffsets;
+    this.readings = readings;
+    this.noneId = syllables.indexOf(NONE);
+  }
+
+  /**
+   * @return index of the first reading of the code point in
+   *         {@link #readings}
+   */
+  private int start(int codePoint) {
+    if (codePoint >= 0 && codePoint < SIZE) {
+      return offsets.get(codePoint);
+    }
+    int slot = getSupplementarySlot(codePoint);
+    return NO_BLOCK == slot ? 0 : supplementaryOffsets.get(slot);
+  }
+
+  /**
+   * @return index after the last reading of the code point in
+   *         {@link #readings}
+   */
+  private int end(int codePoint) {
+    if (codePoint >= 0 && codePoint < SIZE) {
+      return offsets.get(codePoint + 1);
+    }
+    int slot = getSupplementarySlot(codePoint);
+    return NO_BLOCK == slot ? 0 : supplementaryOffsets.get(slot + 1);
+  }
+
+  /**
+   * @return index of a supplementary code point in
+   *         {@link #supplementaryOffsets}; {@link #NO_BLOCK} if its block is
+   *         not present or it is not a code point
+   */
+  private int getSupplementarySlot(int codePoint) {
+    if (codePoint < SIZE || codePoint > Character.MAX_CODE_POINT) {
+      return NO_BLOCK;
+    }
+    int block = blocks.get((codePoint >> BLOCK_BITS) - BMP_BLOCK_COUNT);
+    return NO_BLOCK == block ? NO_BLOCK : (block << BLOCK_BITS) | (codePoint & BLOCK_MASK);
+  }
+
+  /**
+   * @param codePoint
+   *            code point of the given Chinese character
+   * @return the number of readings recorded for the character, including
+   *         {@link #NONE}
+   */
+  int getReadingCount(int codePoint) {
+    return end(codePoint) - start(codePoint);
+  }
+
+  /**
+   * @param codePoint
+   *            code point of the given Chinese character
+   * @param index
+   *            index of the reading, less than {@link #getReadingCount(int)}
+   * @return id of the syllable in {@link #getSyllables()}
+   */
+  int getReadingId(int codePoint, int index) {
+    return readings.get(start(codePoint) + index);
+  }
+
+  /**
+   * @param codePoint
+   *            code point of the given Chinese character
+   * @return true if the character has at least one pronounciation in Chinese
+   */
+  boolean hasValidReadings(int codePoint) {
+    int start = start(codePoint);
+    int count = end(codePoint) - start;
+    return count > 1 || (count == 1 && readings.get(start) != noneId);
+  }
+
+  /**
+   * @param codePoint
+   *            code point of the given Chinese character
+   * @return a new array contains the unformatted readings of the character;
+   *         null if the character has no pronounciation in Chinese
+   */
+  String[] getHanyuPinyinStringArray(int codePoint) {
+    if (!hasValidReadings(codePoint)) {
+      return null;
+    }
+    int start = start(codePoint);
+    String[] result = new String[end(codePoint) - start];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = syllables.get(readings.get(start + i));
+    }
+    return result;
+  }
+
+  /**
+   * @return the pool of syllables the readings refer to
+   */
+  HanyuPinyinSyllables getSyllables() {
+    return syllables;
+  }
+
+  /**
+   * Write the table as the code point section of the compiled dictionary
+   *
+   * @see #read(ByteBuffer, HanyuPinyinSyllables)
+   */
+  void write(DataOutputStream out) throws IOException {
+    PinyinDictionary.writeInts(out, offsets);
+    PinyinDictionary.writeInts(out, blocks);
+    out.writeInt(supplementaryOffsets.limit());
+    PinyinDictionary.writeInts(out, supplementaryOffsets);
+    PinyinDictionary.writeChars(out, readings);
+  }
+
+  /**
+   * @param buffer
+   *            the compiled dictionary, positioned at the code point section
+   *            and advanced past it
+   * @param syllables
+   *            the pool the readings refer to
+   * @return the table
+   */
+  static UnicodeToHanyuPinyinTable read(ByteBuffer buffer, HanyuPinyinSyllables syllables) {
+    IntBuffer offsets = PinyinDictionary.getInts(buffer, SIZE + 1);
+    IntBuffer blocks = PinyinDictionary.getInts(buffer, SUPPLEMENTARY_BLOCK_COUNT);
+    IntBuffer supplementaryOffsets = PinyinDictionary.getInts(buffer, buffer.getInt());
+    CharBuffer readings =
+        PinyinDictionary.getChars(buffer, supplementaryOffsets.get(supplementaryOffsets.limit() - 1));
+    return new UnicodeToHanyuPinyinTable(syllables, offsets, blocks, supplementaryOffsets,
+        readings);
+  }
+
+  /**
+   * Collects records and compiles them into an immutable
+   * {@link UnicodeToHanyuPinyinTable}. A record put later for the same
+   * character replaces the earlier one.
+   */
+  static final class Builder {
+    private final HanyuPinyinSyllables.Builder syllables;
+
+    private final char[][] readings = new char[SIZE][];
+
+    /**
+     * Readings of the supplementary planes, by block and then by the low bits
+     * of the code point; blocks are allocated on the first put
+     */
+    private final char[][][] supplementaryReadings = new char[SUPPLEMENTARY_BLOCK_COUNT][][];
+
+    private int readingCount;
+
+    /**
+     * @param syllables
+     *            assigns the ids of syllables
+     */
+    Builder(HanyuPinyinSyllables.Builder syllables) {
+      this.syllables = syllables;
+    }
+
+    /**
+     * Put the readings of every character of a table built with the same
+     * syllable ids
+     */
+    Builder putAll(UnicodeToHanyuPinyinTable table) {
+      for (int c = 0; c < SIZE; c++) {
+        putAll(table, c);
+      }
+      for (int block = 0; block < SUPPLEMENTARY_BLOCK_COUNT; block++) {
+        if (NO_BLOCK != table.blocks.get(block)) {
+          int first = (block + BMP_BLOCK_COUNT) << BLOCK_BITS;
+          for (int c = first; c < first + BLOCK_SIZE; c++) {
+            putAll(table, c);
+          }
+        }
+      }
+      return this;
+    }
+
+    private void putAll(UnicodeToHanyuPinyinTable table, int codePoint) {
+      int count = table.getReadingCount(codePoint);
+      if (count > 0) {
+        char[] ids = new char[count];
+        for (int i = 0; i < count; i++) {
+          ids[i] = (char) table.getReadingId(codePoint, i);
+        }
+        put(codePoint, ids);
+      }
+    }
+
+    /**
+     * Load records in the format of <code>unicode_to_hanyu_pinyin.txt</code>,
+     * e.g. <code>4E01 (ding1,zheng1)</code>
+     *
+     * @param inStream
+     *            input stream of the records, closed when done
+     * @throws IOException
+     */
+    Builder load(InputStream inStream) throws IOException {
+      BufferedReader bufferedReader = null;
+      try {
+        bufferedReader = new BufferedReader(new InputStreamReader(inStream, "UTF-8"));
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+          int space = line.indexOf(' ');
+          if (space <= 0 || line.indexOf(' ', space + 1) != -1) continue;
+          try {
+            put(Integer.parseInt(line.substring(0, space), 16), line.substring(space + 1));
+          } catch (NumberFormatException ex) {
+            // not a record
+          }
+        }
+      } finally {
+        if (bufferedReader != null) bufferedReader.close();
+      }
+      return this;
+    }
+
+    /**
+     * @param codePoint
+     *            code point of a character in any plane
+     * @param record
+     *            Hanyu Pinyin record, e.g. <code>(ding1,zheng1)</code>;
+     *            mal-formatted records are ignored
+     */
+    Builder put(int codePoint, String record) {
+      if (codePoint < 0 || codePoint > Character.MAX_CODE_POINT || !record.startsWith("(")
+          || !record.endsWith(")")) {
+        return this;
+      }
+
+      char[] ids = syllables.getIds(record.substring(1, record.length() - 1));
+      if (ids.length == 0) {
+        return this;
+      }
+      return put(codePoint, ids);
+    }
+
+    private Builder put(int codePoint, char[] ids) {
+      char[][] block = readings;
+      int index = codePoint;
+      if (codePoint >= SIZE) {
+        int blockIndex = (codePoint >> BLOCK_BITS) - BMP_BLOCK_COUNT;
+        block = supplementaryReadings[blockIndex];
+        if (null == block) {
+          block = supplementaryReadings[blockIndex] = new char[BLOCK_SIZE][];
+        }
+        index = codePoint & BLOCK_MASK;
+      }
+
+      if (null != block[index]) {
+        readingCount -= block[index].length;
+      }
+      block[index] = ids;
+      readingCount += ids.length;
+      return this;
+    }
+
+    /**
+     * @param syllablePool
+     *            the pool built by the syllable builder of this builder
+     */
+    UnicodeToHanyuPinyinTable build(HanyuPinyinSyllables syllablePool) {
+      int[] offsets = new int[SIZE + 1];
+      char[] flat = new char[readingCount];
+      int position = 0;
+      for (int c = 0; c < SIZE; c++) {
+        offsets[c] = position;
+        char[] ids = readings[c];
+        if (null != ids) {
+          System.arraycopy(ids, 0, flat, position, ids.length);
+          position += ids.length;
+        }
+      }
+      offsets[SIZE] = position;
+
+      int[] blocks = new int[SUPPLEMENTARY_BLOCK_COUNT];
+      int blockCount = 0;
+      for (int block = 0; block < SUPPLEMENTARY_BLOCK_COUNT; block++) {
+        blocks[block] = null == supplementaryReadings[block] ? NO_BLOCK : blockCount++;
+      }
+      int[] supplementaryOffsets = new int[blockCount * BLOCK_SIZE + 1];
+      int slot = 0;
+      for (char[][] block : supplementaryReadings) {
+        if (null == block) continue;
+        for (char[] ids : block) {
+          supplementaryOffsets[slot++] = position;
+          if (null != ids) {
+            System.arraycopy(ids, 0, flat, position, ids.length);
+            position += ids.length;
+          }
+        }
+      }
+      supplementaryOffsets[slot] = position;
+
+      return new UnicodeToHanyuPinyinTable(syllablePool, IntBuffer.wrap(offsets), IntBuffer
+          .wrap(blocks), IntBuffer.wrap(supplementaryOffsets), CharBuffer.wrap(flat));
+    }
+  }
+}
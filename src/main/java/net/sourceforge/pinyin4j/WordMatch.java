@@ -0,0 +1,107 @@
+/**
+ * This file is part of pinyin4j (http://sourceforge.net/projects/pinyin4j/) and distributed under
+ * GNU GENERAL PUBLIC LICENSE (GPL).
+ * 
+ * pinyin4j is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * pinyin4j is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with pinyin4j.
+ */
+
+package net.sourceforge.pinyin4j;
+
+/**
+ * One step of the segmentation of a text into words, shared by all
+ * conversions so that they agree: the longest phrase of the dictionary
+ * starting at a position, or else the character there, a surrogate pair
+ * being one character.
+ *
+ * <p>
+ * The phrase walk stops at the first character no phrase continues with,
+ * or at the end of the text. A separator follows the word if the text goes
+ * on after both the word and the walk, so a word whose walk reached the end
+ * of the text is the last one: e.g. "zhang3xing2" for "长行", whose walk
+ * looked for a phrase "长行...". The same condition tells whether the word
+ * is final when the text may go on: only characters within the walk can
+ * change it.
+ *
+ * <p>
+ * A match is reused from word to word and is not thread safe.
+ *
+ */
+final class WordMatch {
+  private final PhraseTrie phraseTrie;
+
+  /**
+   * Index of the first character of the word
+   */
+  int start;
+
+  /**
+   * Index after the word
+   */
+  int end;
+
+  /**
+   * Node of the matched phrase; -1 if the word is a single character
+   */
+  int node;
+
+  /**
+   * Code point of the first character of the word
+   */
+  int codePoint;
+
+  /**
+   * True if a separator follows the word, which is then decided whatever
+   * follows the text
+   */
+  boolean separated;
+
+  WordMatch(PhraseTrie phraseTrie) {
+    this.phraseTrie = phraseTrie;
+  }
+
+  /**
+   * Match the word starting at the given index
+   *
+   * @param str
+   *            the text
+   * @param start
+   *            index of the first character of the word
+   * @param limit
+   *            index after the last character of the text
+   */
+  void match(CharSequence str, int start, int limit) {
+    char ch = str.charAt(start);
+    int codePoint = ch;
+    if (Character.isHighSurrogate(ch) && start + 1 < limit
+        && Character.isLowSurrogate(str.charAt(start + 1))) {
+      codePoint = Character.toCodePoint(ch, str.charAt(start + 1));
+    }
+
+    int result = -1;
+    int success = start;
+    int currentNode = phraseTrie.getChild(PhraseTrie.ROOT, ch);
+    int current = start + 1;
+    while (currentNode != -1 && phraseTrie.hasChildren(currentNode) && current < limit) {
+      currentNode = phraseTrie.getChild(currentNode, str.charAt(current));
+      if (currentNode != -1 && phraseTrie.getValueLength(currentNode) > 0) {
+        result = currentNode;
+        success = current;
+      }
+      current++;
+    }
+
+    this.start = start;
+    this.end = result == -1 ? start + Character.charCount(codePoint) : success + 1;
+    this.node = result;
+    this.codePoint = codePoint;
+    this.separated = Math.max(current, this.end) < limit;
+  }
+}
@@ -15,6 +15,8 @@
 
 package net.sourceforge.pinyin4j.format;
 
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
 /**
  * This classes define how the Hanyu Pinyin should be outputted.
  * 
@@ -102,6 +104,13 @@ package net.sourceforge.pinyin4j.format;
  * </tr>
  * </table>
  * 
+ * <p>
+ * Instances created by the constructor are mutable and must not be shared
+ * between threads while they are changed. The instances returned by
+ * {@link #valueOf(HanyuPinyinToneType, HanyuPinyinVCharType, HanyuPinyinCaseType)}
+ * are predefined for every meaningful combination and immutable, so they can
+ * be shared freely.
+ * 
  * @see HanyuPinyinVCharType
  * @see HanyuPinyinCaseType
  * @see HanyuPinyinToneType
@@ -111,10 +120,176 @@ package net.sourceforge.pinyin4j.format;
  */
 final public class HanyuPinyinOutputFormat {
 
+  /**
+   * The number of combinations of output format options, including the
+   * meaningless ones. Every {@link #ordinal()} is less than this value.
+   */
+  public static final int COMBINATION_COUNT = 3 * 3 * 2;
+
+  private static final HanyuPinyinToneType[] TONE_TYPES = {HanyuPinyinToneType.WITH_TONE_NUMBER,
+      HanyuPinyinToneType.WITHOUT_TONE, HanyuPinyinToneType.WITH_TONE_MARK};
+
+  private static final HanyuPinyinVCharType[] V_CHAR_TYPES = {
+      HanyuPinyinVCharType.WITH_U_AND_COLON, HanyuPinyinVCharType.WITH_V,
+      HanyuPinyinVCharType.WITH_U_UNICODE};
+
+  private static final HanyuPinyinCaseType[] CASE_TYPES = {HanyuPinyinCaseType.LOWERCASE,
+      HanyuPinyinCaseType.UPPERCASE};
+
+  /**
+   * The immutable instances indexed by ordinal; null for meaningless
+   * combinations
+   */
+  private static final HanyuPinyinOutputFormat[] PREDEFINED =
+      new HanyuPinyinOutputFormat[COMBINATION_COUNT];
+
+  static {
+    for (int ordinal = 0; ordinal < COMBINATION_COUNT; ordinal++) {
+      HanyuPinyinOutputFormat outputFormat =
+          new HanyuPinyinOutputFormat(TONE_TYPES[ordinal / 6], V_CHAR_TYPES[ordinal / 2 % 3],
+              CASE_TYPES[ordinal % 2]);
+      if (outputFormat.isValid()) {
+        PREDEFINED[ordinal] = outputFormat;
+      }
+    }
+  }
+
+  /**
+   * The immutable instance of the default combination
+   * 
+   * @see #restoreDefault()
+   */
+  public static final HanyuPinyinOutputFormat DEFAULT = PREDEFINED[0];
+
   public HanyuPinyinOutputFormat() {
+    immutable = false;
     restoreDefault();
   }
 
+  private HanyuPinyinOutputFormat(HanyuPinyinToneType toneType, HanyuPinyinVCharType vCharType,
+      HanyuPinyinCaseType caseType) {
+    this.toneType = toneType;
+    this.vCharType = vCharType;
+    this.caseType = caseType;
+    this.immutable = true;
+  }
+
+  /**
+   * Returns the predefined immutable instance of the given combination of
+   * output format options. The same instance is returned for the same
+   * combination.
+   * 
+   * @param toneType
+   *            the output format of Chinese tones
+   * @param vCharType
+   *            the output format of character 'ü'
+   * @param caseType
+   *            the output cases of Hanyu Pinyin characters
+   * @return the immutable output format
+   * @throws BadHanyuPinyinOutputFormatCombination
+   *             if the combination is meaningless
+   */
+  public static HanyuPinyinOutputFormat valueOf(HanyuPinyinToneType toneType,
+      HanyuPinyinVCharType vCharType, HanyuPinyinCaseType caseType)
+      throws BadHanyuPinyinOutputFormatCombination {
+    return valueOf(ordinal(toneType, vCharType, caseType));
+  }
+
+  /**
+   * Returns the predefined immutable instance of the given ordinal.
+   * 
+   * @param ordinal
+   *            the ordinal of a combination of output format options
+   * @return the immutable output format
+   * @throws BadHanyuPinyinOutputFormatCombination
+   *             if the combination is meaningless
+   * @throws IllegalArgumentException
+   *             if the ordinal is out of range
+   * @see #ordinal()
+   */
+  public static HanyuPinyinOutputFormat valueOf(int ordinal)
+      throws BadHanyuPinyinOutputFormatCombination {
+    if (ordinal < 0 || ordinal >= COMBINATION_COUNT) {
+      throw new IllegalArgumentException("no output format of ordinal " + ordinal);
+    }
+    HanyuPinyinOutputFormat outputFormat = PREDEFINED[ordinal];
+    if (null == outputFormat) {
+      throw new BadHanyuPinyinOutputFormatCombination("tone marks cannot be added to v or u:");
+    }
+    return outputFormat;
+  }
+
+  /**
+   * Returns the predefined immutable instance with the same combination of
+   * output format options as this one.
+   * 
+   * @return the immutable output format; this if this is predefined
+   * @throws BadHanyuPinyinOutputFormatCombination
+   *             if the combination is meaningless
+   */
+  public HanyuPinyinOutputFormat intern() throws BadHanyuPinyinOutputFormatCombination {
+    return valueOf(ordinal());
+  }
+
+  /**
+   * Returns a stable number in the range [0, {@link #COMBINATION_COUNT})
+   * identifying the combination of output format options, which is suitable
+   * as key of tables and caches.
+   * 
+   * <p>
+   * The ordinal is <code>(tone * 3 + vChar) * 2 + case</code>, where tone
+   * counts WITH_TONE_NUMBER, WITHOUT_TONE, WITH_TONE_MARK, vChar counts
+   * WITH_U_AND_COLON, WITH_V, WITH_U_UNICODE and case counts LOWERCASE,
+   * UPPERCASE from 0. Options other than these count as the default ones.
+   */
+  public int ordinal() {
+    return ordinal(toneType, vCharType, caseType);
+  }
+
+  private static int ordinal(HanyuPinyinToneType toneType, HanyuPinyinVCharType vCharType,
+      HanyuPinyinCaseType caseType) {
+    int tone = 0;
+    if (HanyuPinyinToneType.WITHOUT_TONE == toneType) {
+      tone = 1;
+    } else if (HanyuPinyinToneType.WITH_TONE_MARK == toneType) {
+      tone = 2;
+    }
+
+    int vChar = 0;
+    if (HanyuPinyinVCharType.WITH_V == vCharType) {
+      vChar = 1;
+    } else if (HanyuPinyinVCharType.WITH_U_UNICODE == vCharType) {
+      vChar = 2;
+    }
+
+    int upperCase = HanyuPinyinCaseType.UPPERCASE == caseType ? 1 : 0;
+
+    return (tone * 3 + vChar) * 2 + upperCase;
+  }
+
+  /**
+   * @return false if tone marks are combined with 'v' or "u:"
+   */
+  public boolean isValid() {
+    return !((HanyuPinyinToneType.WITH_TONE_MARK == toneType)
+        && ((HanyuPinyinVCharType.WITH_V == vCharType)
+            || (HanyuPinyinVCharType.WITH_U_AND_COLON == vCharType)));
+  }
+
+  /**
+   * @return true if this is one of the predefined instances, which cannot be
+   *         changed
+   */
+  public boolean isImmutable() {
+    return immutable;
+  }
+
+  private void checkMutable() {
+    if (immutable) {
+      throw new UnsupportedOperationException("predefined output formats are immutable");
+    }
+  }
+
   /**
    * Restore default variable values for this class
    * 
@@ -124,8 +299,12 @@ final public class HanyuPinyinOutputFormat {
    * HanyuPinyinVCharType := WITH_U_AND_COLON <br>
    * HanyuPinyinCaseType := LOWERCASE <br>
    * HanyuPinyinToneType := WITH_TONE_NUMBER <br>
+   * 
+   * @throws UnsupportedOperationException
+   *             if this output format is predefined
    */
   public void restoreDefault() {
+    checkMutable();
     vCharType = HanyuPinyinVCharType.WITH_U_AND_COLON;
     caseType = HanyuPinyinCaseType.LOWERCASE;
     toneType = HanyuPinyinToneType.WITH_TONE_NUMBER;
@@ -147,8 +326,12 @@ final public class HanyuPinyinOutputFormat {
    *            the output cases of Hanyu Pinyin characters
    * 
    * @see HanyuPinyinCaseType
+   * 
+   * @throws UnsupportedOperationException
+   *             if this output format is predefined
    */
   public void setCaseType(HanyuPinyinCaseType caseType) {
+    checkMutable();
     this.caseType = caseType;
   }
 
@@ -168,8 +351,12 @@ final public class HanyuPinyinOutputFormat {
    *            the output format of Chinese tones
    * 
    * @see HanyuPinyinToneType
+   * 
+   * @throws UnsupportedOperationException
+   *             if this output format is predefined
    */
   public void setToneType(HanyuPinyinToneType toneType) {
+    checkMutable();
     this.toneType = toneType;
   }
 
@@ -189,8 +376,12 @@ final public class HanyuPinyinOutputFormat {
    *            the output format of character 'ü'
    * 
    * @see HanyuPinyinVCharType
+   * 
+   * @throws UnsupportedOperationException
+   *             if this output format is predefined
    */
   public void setVCharType(HanyuPinyinVCharType charType) {
+    checkMutable();
     vCharType = charType;
   }
 
@@ -200,4 +391,6 @@ final public class HanyuPinyinOutputFormat {
 
   private HanyuPinyinToneType toneType;
 
+  private final boolean immutable;
+
 }
@@ -1,15 +1,18 @@
 package net.sourceforge.pinyin4j.multipinyin;
 
 import java.io.*;
-import java.util.Hashtable;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Created by 刘一波 on 16/3/4.
  * E-Mail:yibo.liu@tqmall.com
+ * <p>
+ * 加载完成前不能共享；加载完成并安全发布（如赋给 final 字段）后，多个线程可以无锁并发读取。
  */
 public class Trie {
 
-    private Hashtable<String, Trie> values = new Hashtable<String, Trie>();//本节点包含的值
+    private final Map<String, Trie> values = new HashMap<String, Trie>();//本节点包含的值
 
     private String pinyin;//本节点的拼音
 
@@ -0,0 +1,117 @@
+package net.sourceforge.pinyin4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Mapped dictionary files left by another release. The class lives in the
+ * package of pinyin4j to reach the package-private dictionary.
+ */
+public class MappedDictionaryTest extends TestCase {
+  private File file;
+
+  @Override
+  protected void setUp() throws Exception {
+    file = File.createTempFile("pinyin_dictionary", ".dat");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    file.delete();
+  }
+
+  private static byte[] readBundled() throws Exception {
+    InputStream in = ResourceHelper.getResourceInputStream(ChineseToPinyinResource.DICTIONARY);
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int length;
+      while ((length = in.read(buffer)) != -1) {
+        bytes.write(buffer, 0, length);
+      }
+      return bytes.toByteArray();
+    } finally {
+      in.close();
+    }
+  }
+
+  private void writeFile(byte[] bytes) throws Exception {
+    OutputStream out = new FileOutputStream(file);
+    try {
+      out.write(bytes);
+    } finally {
+      out.close();
+    }
+  }
+
+  private void assertBundled() throws Exception {
+    int checksum =
+        PinyinDictionary.readChecksum(
+            ResourceHelper.getResourceInputStream(ChineseToPinyinResource.DICTIONARY));
+    assertEquals(checksum, PinyinDictionary.readChecksum(new FileInputStream(file)));
+
+    PinyinDictionary dictionary = ChineseToPinyinResource.mapDictionary(file);
+    assertEquals("zhong1",
+        dictionary.getUnicodeToHanyuPinyinTable().getHanyuPinyinStringArray('中')[0]);
+  }
+
+  public void testMapDictionary() throws Exception {
+    // an empty file is not a dictionary
+    ChineseToPinyinResource.mapDictionary(file);
+    assertBundled();
+
+    // the file is kept as long as it holds the bundled dictionary
+    long lastModified = file.lastModified() - 2000;
+    assertTrue(file.setLastModified(lastModified));
+    assertBundled();
+    assertEquals(lastModified, file.lastModified());
+  }
+
+  public void testMapStaleDictionary() throws Exception {
+    // the same layout with another checksum, as a previous release may have written
+    byte[] stale = readBundled();
+    stale[12] ^= 1;
+    writeFile(stale);
+    try {
+      PinyinDictionary.map(file, PinyinDictionary.readChecksum(
+          ResourceHelper.getResourceInputStream(ChineseToPinyinResource.DICTIONARY)));
+      fail();
+    } catch (IOException expected) {
+    }
+
+    ChineseToPinyinResource.mapDictionary(file);
+    assertBundled();
+  }
+
+  public void testMapSupplementaryCharacter() throws Exception {
+    // U+20000, kept in the sparse part of the table
+    PinyinDictionary bundled = PinyinDictionary.read(new ByteArrayInputStream(readBundled()));
+    PinyinDictionary dictionary = new PinyinDictionary.Builder(bundled).loadMultiPinyin(
+        new ByteArrayInputStream("\uD840\uDC00 (ke1)\n".getBytes("UTF-8")), "UTF-8").build();
+    OutputStream out = new FileOutputStream(file);
+    try {
+      dictionary.write(out);
+    } finally {
+      out.close();
+    }
+
+    PinyinDictionary mapped =
+        PinyinDictionary.map(file, PinyinDictionary.readChecksum(new FileInputStream(file)));
+    PinyinDictionary read = PinyinDictionary.read(new FileInputStream(file));
+    for (PinyinDictionary copy : new PinyinDictionary[] {mapped, read}) {
+      UnicodeToHanyuPinyinTable table = copy.getUnicodeToHanyuPinyinTable();
+      assertTrue(Arrays.equals(new String[] {"ke1"}, table.getHanyuPinyinStringArray(0x20000)));
+      assertNull(table.getHanyuPinyinStringArray(0x20001));
+      assertEquals("zhong1", table.getHanyuPinyinStringArray('中')[0]);
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package net.sourceforge.pinyin4j;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+
+/**
+ * Conversions split into a given number of parts, whatever the number of
+ * processors of the machine running the test. The class lives in the package
+ * of pinyin4j to reach the package-private part count.
+ */
+public class ParallelConversionTest extends TestCase {
+  private static final int[] PART_COUNTS = new int[] {2, 3, 8, 32};
+
+  private ExecutorService pool;
+
+  /**
+   * Runs the tasks on the pool and counts them
+   */
+  private final AtomicInteger executed = new AtomicInteger();
+
+  private final Executor executor = new Executor() {
+    public void execute(Runnable command) {
+      executed.incrementAndGet();
+      pool.execute(command);
+    }
+  };
+
+  @Override
+  protected void setUp() throws Exception {
+    pool = Executors.newFixedThreadPool(3);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    pool.shutdown();
+  }
+
+  public void testToHanYuPinyinString() throws Exception {
+    HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+    // a phrase and a surrogate pair cover 6 of every 7 characters
+    String unit = "吸血鬼日记\uD840\uDC00";
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; builder.length() < 5000; i++) {
+      builder.append(unit).append(i % 3 == 0 ? "长a，" : "");
+    }
+    String text = builder.toString();
+    String expected = PinyinHelper.toHanYuPinyinString(text, outputFormat, " ", true);
+
+    // the even splits mostly land inside phrases and surrogate pairs, and move to the next word
+    int splits = 0;
+    int inside = 0;
+    for (int partCount : PART_COUNTS) {
+      for (int part = 1; part < partCount; part++) {
+        char ch = text.charAt((int) ((long) text.length() * part / partCount));
+        if (unit.indexOf(ch) > 0 && !Character.isHighSurrogate(ch)) inside++;
+        splits++;
+      }
+    }
+    assertTrue(inside > splits / 2);
+
+    for (int partCount : PART_COUNTS) {
+      executed.set(0);
+      assertEquals(expected,
+          PinyinHelper.toHanYuPinyinString(text, outputFormat, " ", true, executor, partCount));
+      // the calling thread converts the first part
+      assertEquals(partCount - 1, executed.get());
+    }
+
+    // no place to split at
+    executed.set(0);
+    assertEquals("chong2 qing4",
+        PinyinHelper.toHanYuPinyinString("重庆", outputFormat, " ", true, executor, 8));
+    assertEquals(0, executed.get());
+  }
+
+  public void testToHanYuPinyinStrings() throws Exception {
+    HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+    String[] texts = new String[1000];
+    String[] expected = new String[texts.length];
+    for (int i = 0; i < texts.length; i++) {
+      texts[i] = i + "重庆银行" + (char) ('一' + i);
+      expected[i] = PinyinHelper.toHanYuPinyinString(texts[i], outputFormat, " ", true);
+    }
+
+    for (int partCount : PART_COUNTS) {
+      executed.set(0);
+      String[] results =
+          PinyinHelper.toHanYuPinyinStrings(texts, outputFormat, " ", true, executor, partCount);
+      // every result back at the index of its string
+      assertTrue(Arrays.equals(expected, results));
+      assertEquals(partCount - 1, executed.get());
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package net.sourceforge.pinyin4j.test;
+
+import junit.framework.TestCase;
+import net.sourceforge.pinyin4j.CountingPinyinMetrics;
+import net.sourceforge.pinyin4j.LruPinyinCache;
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.PinyinMetrics;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+
+public class CountingPinyinMetricsTest extends TestCase {
+  public void testConversion() throws Exception {
+    CountingPinyinMetrics metrics = new CountingPinyinMetrics();
+    PinyinHelper.setMetrics(metrics);
+    try {
+      assertEquals("chong2 qing4 yin2 hang2 abjian1",
+          PinyinHelper.toHanYuPinyinString("重庆银行ab间", new HanyuPinyinOutputFormat(), " ", true));
+      assertEquals(7, metrics.getCharacterCount());
+      assertEquals(1, metrics.getConversionCount());
+      assertEquals(2, metrics.getPhraseCount(2));
+      assertEquals(0, metrics.getPhraseCount(3));
+      assertEquals(2, metrics.getPhraseCount());
+      assertEquals(2, metrics.getUnknownCharacterCount());
+      assertTrue(metrics.getConversionNanos() >= 0);
+
+      PinyinHelper.setCache(new LruPinyinCache(10));
+      try {
+        PinyinHelper.toHanYuPinyinString("间", new HanyuPinyinOutputFormat(), " ", true);
+        PinyinHelper.toHanYuPinyinString("间", new HanyuPinyinOutputFormat(), " ", true);
+      } finally {
+        PinyinHelper.setCache(null);
+      }
+      assertEquals(1, metrics.getCacheHitCount());
+      assertEquals(1, metrics.getCacheMissCount());
+      assertEquals(2, metrics.getConversionCount());
+    } finally {
+      PinyinHelper.setMetrics(null);
+    }
+    assertSame(PinyinMetrics.NONE, PinyinHelper.getMetrics());
+  }
+
+  public void testConcurrentCounting() throws Exception {
+    final CountingPinyinMetrics metrics = new CountingPinyinMetrics();
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 10000; j++) {
+            metrics.phraseMatched(20);
+            metrics.unknownCharacters(2);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(40000, metrics.getPhraseCount(CountingPinyinMetrics.MAX_PHRASE_LENGTH));
+    assertEquals(80000, metrics.getUnknownCharacterCount());
+  }
+}
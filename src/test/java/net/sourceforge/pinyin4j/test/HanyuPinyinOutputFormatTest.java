@@ -0,0 +1,71 @@
+package net.sourceforge.pinyin4j.test;
+
+import junit.framework.TestCase;
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+public class HanyuPinyinOutputFormatTest extends TestCase {
+  public void testPredefined() throws BadHanyuPinyinOutputFormatCombination {
+    HanyuPinyinOutputFormat outputFormat =
+        HanyuPinyinOutputFormat.valueOf(HanyuPinyinToneType.WITH_TONE_MARK,
+            HanyuPinyinVCharType.WITH_U_UNICODE, HanyuPinyinCaseType.UPPERCASE);
+
+    assertTrue(outputFormat.isImmutable());
+    assertSame(outputFormat, HanyuPinyinOutputFormat.valueOf(HanyuPinyinToneType.WITH_TONE_MARK,
+        HanyuPinyinVCharType.WITH_U_UNICODE, HanyuPinyinCaseType.UPPERCASE));
+    assertSame(outputFormat, HanyuPinyinOutputFormat.valueOf(outputFormat.ordinal()));
+    assertEquals("LǙ", PinyinHelper.toHanyuPinyinStringArray('吕', outputFormat)[0]);
+
+    try {
+      outputFormat.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    try {
+      HanyuPinyinOutputFormat.DEFAULT.restoreDefault();
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+  public void testIntern() throws BadHanyuPinyinOutputFormatCombination {
+    HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+    assertFalse(outputFormat.isImmutable());
+    assertSame(HanyuPinyinOutputFormat.DEFAULT, outputFormat.intern());
+    assertEquals(HanyuPinyinOutputFormat.DEFAULT.ordinal(), outputFormat.ordinal());
+
+    outputFormat.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+    outputFormat.setVCharType(HanyuPinyinVCharType.WITH_V);
+    HanyuPinyinOutputFormat interned = outputFormat.intern();
+    assertSame(HanyuPinyinToneType.WITHOUT_TONE, interned.getToneType());
+    assertSame(HanyuPinyinVCharType.WITH_V, interned.getVCharType());
+    assertSame(HanyuPinyinCaseType.LOWERCASE, interned.getCaseType());
+  }
+
+  public void testOrdinal() {
+    int valid = 0;
+    for (int ordinal = 0; ordinal < HanyuPinyinOutputFormat.COMBINATION_COUNT; ordinal++) {
+      try {
+        assertEquals(ordinal, HanyuPinyinOutputFormat.valueOf(ordinal).ordinal());
+        valid++;
+      } catch (BadHanyuPinyinOutputFormatCombination e) {
+        // tone marks with v or u:
+      }
+    }
+    assertEquals(14, valid);
+
+    try {
+      HanyuPinyinOutputFormat.valueOf(HanyuPinyinToneType.WITH_TONE_MARK,
+          HanyuPinyinVCharType.WITH_V, HanyuPinyinCaseType.LOWERCASE);
+      fail();
+    } catch (BadHanyuPinyinOutputFormatCombination e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package net.sourceforge.pinyin4j.test;
+
+import junit.framework.TestCase;
+import net.sourceforge.pinyin4j.LruPinyinCache;
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+
+public class LruPinyinCacheTest extends TestCase {
+  public void testEviction() {
+    LruPinyinCache cache = new LruPinyinCache(2);
+    cache.put("a", "1");
+    cache.put("b", "2");
+    assertEquals("1", cache.get("a"));
+    // "b" is the least recently used
+    cache.put("c", "3");
+    assertEquals(2, cache.size());
+    assertNull(cache.get("b"));
+    assertEquals("1", cache.get("a"));
+    assertEquals("3", cache.get("c"));
+    assertEquals(3, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getHitCount());
+
+    try {
+      new LruPinyinCache(0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      new LruPinyinCache(10, 0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  public void testStripes() throws Exception {
+    final LruPinyinCache cache = new LruPinyinCache(1000, 8);
+    for (int i = 0; i < 2000; i++) {
+      cache.put(i, String.valueOf(i));
+      assertEquals(String.valueOf(i), cache.get(i));
+    }
+    // every stripe evicts on its own
+    assertTrue(cache.size() <= 1000);
+    assertTrue(cache.size() > 900);
+    assertNull(cache.get(0));
+
+    cache.clear();
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 10000; j++) {
+            Integer key = j % 1500;
+            if (cache.get(key) == null) {
+              cache.put(key, key.toString());
+            }
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(40000, cache.getHitCount() + cache.getMissCount());
+    assertTrue(cache.size() <= 1000);
+  }
+
+  public void testToHanYuPinyinString() throws Exception {
+    LruPinyinCache cache = new LruPinyinCache(100);
+    PinyinHelper.setCache(cache);
+    try {
+      HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+      assertEquals("chong2 qing4", PinyinHelper.toHanYuPinyinString("重庆", outputFormat, " ", true));
+      assertEquals("chong2 qing4", PinyinHelper.toHanYuPinyinString("重庆", outputFormat, " ", true));
+      assertEquals(1, cache.getHitCount());
+      assertEquals(1, cache.getMissCount());
+
+      // every option is part of the key, the format by its value
+      assertEquals("chong2qing4", PinyinHelper.toHanYuPinyinString("重庆", outputFormat, "", true));
+      outputFormat.setCaseType(HanyuPinyinCaseType.UPPERCASE);
+      assertEquals("CHONG2 QING4", PinyinHelper.toHanYuPinyinString("重庆", outputFormat, " ", true));
+      assertEquals(1, cache.getHitCount());
+      assertEquals(3, cache.size());
+    } finally {
+      PinyinHelper.setCache(null);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package net.sourceforge.pinyin4j.test;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.sourceforge.pinyin4j.CountingPinyinMetrics;
+import net.sourceforge.pinyin4j.PinyinConverter;
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+public class PinyinConverterTest extends TestCase {
+  public void testFeed() throws Exception {
+    HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+    StringBuilder out = new StringBuilder();
+    PinyinConverter converter = new PinyinConverter(outputFormat, " ", true, out);
+
+    // a phrase is written once no longer phrase can match
+    converter.feed("重");
+    assertEquals("", out.toString());
+    converter.feed("庆长城");
+    assertTrue("chong2 qing4 zhang3 cheng2".startsWith(out.toString()));
+    converter.feed("，，");
+    assertEquals("chong2 qing4 zhang3 cheng2 ，", out.toString());
+    converter.finish();
+    assertEquals(PinyinHelper.toHanYuPinyinString("重庆长城，，", outputFormat, " ", true),
+        out.toString());
+
+    // reusable after finish
+    out.setLength(0);
+    converter.feed("银行");
+    converter.finish();
+    assertEquals("yin2 hang2", out.toString());
+
+    out.setLength(0);
+    converter.finish();
+    assertEquals("", out.toString());
+  }
+
+  public void testFeedChunks() throws Exception {
+    HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; text.length() < 5000; i++) {
+      text.append("重庆长城吸血鬼日记银行行长").append(i).append("𠀀").append("长a，");
+    }
+    String expected = PinyinHelper.toHanYuPinyinString(text.toString(), outputFormat, " ", true);
+
+    // chunks splitting phrases and surrogate pairs anywhere
+    Random random = new Random(42);
+    for (int maxChunk : new int[] {1, 3, 64, 10000}) {
+      StringBuilder out = new StringBuilder();
+      PinyinConverter converter = new PinyinConverter(outputFormat, " ", true, out);
+      for (int i = 0; i < text.length();) {
+        int next = Math.min(text.length(), i + 1 + random.nextInt(maxChunk));
+        converter.feed(text.subSequence(i, next));
+        i = next;
+      }
+      converter.finish();
+      assertEquals(expected, out.toString());
+    }
+  }
+
+  public void testFeedConvertsOnce() throws Exception {
+    HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+    StringBuilder chunk = new StringBuilder();
+    while (chunk.length() < 1000) {
+      chunk.append("重庆长城银行行长");
+    }
+    StringBuilder out = new StringBuilder();
+    PinyinConverter converter = new PinyinConverter(outputFormat, " ", true, out);
+    CountingPinyinMetrics metrics = new CountingPinyinMetrics();
+    PinyinHelper.setMetrics(metrics);
+    try {
+      // one conversion of the chunk, and one of the words held back before it
+      converter.feed(chunk);
+      assertEquals(1, metrics.getConversionCount());
+      converter.feed(chunk);
+      assertEquals(3, metrics.getConversionCount());
+      converter.finish();
+    } finally {
+      PinyinHelper.setMetrics(null);
+    }
+    chunk.append(chunk);
+    assertEquals(PinyinHelper.toHanYuPinyinString(chunk.toString(), outputFormat, " ", true),
+        out.toString());
+  }
+
+  public void testBadOutputFormat() {
+    HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+    outputFormat.setToneType(HanyuPinyinToneType.WITH_TONE_MARK);
+    outputFormat.setVCharType(HanyuPinyinVCharType.WITH_V);
+    try {
+      new PinyinConverter(outputFormat, " ", true, new StringBuilder());
+      fail();
+    } catch (BadHanyuPinyinOutputFormatCombination e) {
+      // expected
+    }
+  }
+}
@@ -1,7 +1,29 @@
 package net.sourceforge.pinyin4j.test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import junit.framework.TestCase;
 import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.PinyinLattice;
 import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
 import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
 import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
@@ -591,4 +613,333 @@ public class PinyinHelperTest extends TestCase {
       e.printStackTrace();
     }
   }
+
+  public void testToHanYuPinyinStringRange() throws Exception {
+    HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+    outputFormat.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+
+    String text = "ab吸血鬼日记...";
+    String expected = PinyinHelper.toHanYuPinyinString("吸血鬼日记", outputFormat, " ", true);
+    assertEquals("xi xue gui ri ji", expected);
+
+    // the buffer is reused across conversions
+    StringBuilder builder = new StringBuilder();
+    PinyinHelper.toHanYuPinyinString(text, 2, 5, outputFormat, " ", true, builder);
+    assertEquals(expected, builder.toString());
+    builder.setLength(0);
+    PinyinHelper.toHanYuPinyinString(new StringBuilder(text), 0, text.length(), outputFormat, " ",
+        true, builder);
+    assertEquals(PinyinHelper.toHanYuPinyinString(text, outputFormat, " ", true), builder.toString());
+
+    CharBuffer charBuffer = CharBuffer.allocate(64);
+    PinyinHelper.toHanYuPinyinString(text, 2, 5, outputFormat, " ", true, (Appendable) charBuffer);
+    charBuffer.flip();
+    assertEquals(expected, charBuffer.toString());
+
+    try {
+      PinyinHelper.toHanYuPinyinString(text, 5, text.length(), outputFormat, " ", true, builder);
+      fail();
+    } catch (IndexOutOfBoundsException e) {
+      // expected
+    }
+  }
+
+  public void testCodePoint() throws Exception {
+    HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+    assertTrue(Arrays.equals(PinyinHelper.toHanyuPinyinStringArray('间'),
+        PinyinHelper.toHanyuPinyinStringArray((int) '间')));
+    assertTrue(Arrays.equals(PinyinHelper.toHanyuPinyinStringArray('间', outputFormat),
+        PinyinHelper.toHanyuPinyinStringArray((int) '间', outputFormat)));
+    assertTrue(Arrays.equals(PinyinHelper.toWadeGilesPinyinStringArray('间'),
+        PinyinHelper.toWadeGilesPinyinStringArray((int) '间')));
+
+    // U+20000, the first character of CJK Unified Ideographs Extension B
+    assertNull(PinyinHelper.toHanyuPinyinStringArray(0x20000));
+    assertNull(PinyinHelper.toHanyuPinyinStringArray(-1));
+    assertNull(PinyinHelper.toHanyuPinyinStringArray(Character.MAX_CODE_POINT + 1));
+
+    // a surrogate pair without readings is retained whole
+    assertEquals("jian1 \uD840\uDC00li3",
+        PinyinHelper.toHanYuPinyinString("间\uD840\uDC00李", outputFormat, " ", true));
+    assertEquals("jian1 li3",
+        PinyinHelper.toHanYuPinyinString("间\uD840\uDC00李", outputFormat, " ", false));
+  }
+
+  public void testToHanYuPinyinStrings() throws Exception {
+    HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+    outputFormat.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+
+    String[] texts = new String[1000];
+    for (int i = 0; i < texts.length; i++) {
+      texts[i] = i + "吸血鬼日记" + "重庆长城".substring(i % 4) + "...";
+    }
+    String[] expected = new String[texts.length];
+    for (int i = 0; i < texts.length; i++) {
+      expected[i] = PinyinHelper.toHanYuPinyinString(texts[i], outputFormat, " ", true);
+    }
+
+    assertTrue(Arrays.equals(expected,
+        PinyinHelper.toHanYuPinyinStrings(texts, outputFormat, " ", true)));
+    List<CharSequence> list = new ArrayList<CharSequence>();
+    for (String text : texts) {
+      list.add(new StringBuilder(text));
+    }
+    assertEquals(Arrays.asList(expected),
+        PinyinHelper.toHanYuPinyinStrings(list, outputFormat, " ", true));
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      assertTrue(Arrays.equals(expected,
+          PinyinHelper.toHanYuPinyinStrings(texts, outputFormat, " ", true, executor)));
+      assertEquals(Arrays.asList(expected),
+          PinyinHelper.toHanYuPinyinStrings(list, outputFormat, " ", true, executor));
+      assertEquals(0,
+          PinyinHelper.toHanYuPinyinStrings(new String[0], outputFormat, " ", true, executor).length);
+    } finally {
+      executor.shutdown();
+    }
+
+    outputFormat.setToneType(HanyuPinyinToneType.WITH_TONE_MARK);
+    outputFormat.setVCharType(HanyuPinyinVCharType.WITH_V);
+    try {
+      PinyinHelper.toHanYuPinyinStrings(new String[] {"abc"}, outputFormat, " ", true);
+      fail();
+    } catch (BadHanyuPinyinOutputFormatCombination e) {
+      // expected
+    }
+  }
+
+  public void testToHanYuPinyinStringParallel() throws Exception {
+    HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; text.length() < 50000; i++) {
+      text.append("重庆长城吸血鬼日记银行行长").append(i).append("\uD840\uDC00").append("长a，");
+    }
+    String expected = PinyinHelper.toHanYuPinyinString(text.toString(), outputFormat, " ", true);
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      assertEquals(expected,
+          PinyinHelper.toHanYuPinyinString(text.toString(), outputFormat, " ", true, executor));
+      assertEquals("chong2 qing4",
+          PinyinHelper.toHanYuPinyinString("重庆", outputFormat, " ", true, executor));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testToHanYuPinyinStringStream() throws Exception {
+    HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; text.length() < 20000; i++) {
+      text.append("重庆长城吸血鬼日记银行行长").append(i).append("\uD840\uDC00").append("长a，");
+    }
+    String expected = PinyinHelper.toHanYuPinyinString(text.toString(), outputFormat, " ", true);
+
+    // a reader returning a few characters at a time, splitting phrases and surrogate pairs
+    Reader in = new FilterReader(new StringReader(text.toString())) {
+      private int next;
+
+      @Override
+      public int read(char[] cbuf, int off, int len) throws IOException {
+        return super.read(cbuf, off, Math.min(len, 1 + next++ % 7));
+      }
+    };
+    StringWriter out = new StringWriter();
+    PinyinHelper.toHanYuPinyinString(in, outputFormat, " ", true, out);
+    assertEquals(expected, out.toString());
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PinyinHelper.toHanYuPinyinString(
+        Channels.newChannel(new ByteArrayInputStream(text.toString().getBytes("UTF-8"))),
+        Charset.forName("UTF-8"), outputFormat, " ", true, Channels.newChannel(bytes));
+    assertEquals(expected, new String(bytes.toByteArray(), "UTF-8"));
+
+    out = new StringWriter();
+    PinyinHelper.toHanYuPinyinString(new StringReader(""), outputFormat, " ", true, out);
+    assertEquals("", out.toString());
+  }
+
+  public void testGetHanyuPinyin() throws Exception {
+    assertEquals(2, PinyinHelper.getHanyuPinyinCount('间'));
+    assertEquals("jian1", PinyinHelper.getHanyuPinyin('间', 0));
+    assertEquals("jian4", PinyinHelper.getHanyuPinyin('间', 1));
+    assertEquals(0, PinyinHelper.getHanyuPinyinCount('A'));
+    assertEquals(0, PinyinHelper.getHanyuPinyinCount(0x20000));
+
+    HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+    outputFormat.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+    outputFormat.setCaseType(HanyuPinyinCaseType.UPPERCASE);
+    for (char ch : "间李绿中".toCharArray()) {
+      String[] pinyinArray = PinyinHelper.toHanyuPinyinStringArray(ch, outputFormat);
+      assertEquals(pinyinArray.length, PinyinHelper.getHanyuPinyinCount(ch));
+      for (int i = 0; i < pinyinArray.length; i++) {
+        assertEquals(pinyinArray[i], PinyinHelper.getHanyuPinyin(ch, i, outputFormat));
+        // shared strings
+        assertSame(PinyinHelper.getHanyuPinyin(ch, i, outputFormat),
+            PinyinHelper.getHanyuPinyin(ch, i, outputFormat));
+      }
+    }
+
+    try {
+      PinyinHelper.getHanyuPinyin('间', 2);
+      fail();
+    } catch (IndexOutOfBoundsException e) {
+      // expected
+    }
+    try {
+      PinyinHelper.getHanyuPinyin('A', 0);
+      fail();
+    } catch (IndexOutOfBoundsException e) {
+      // expected
+    }
+  }
+
+  public void testToHanYuPinyinInitials() throws Exception {
+    assertEquals("bj", PinyinHelper.toHanYuPinyinInitials("北京", null, true));
+    assertEquals("BJ", PinyinHelper.toHanYuPinyinInitials("北京", HanyuPinyinCaseType.UPPERCASE, true));
+    // the reading in a phrase
+    assertEquals("cqyh", PinyinHelper.toHanYuPinyinInitials("重庆银行", null, true));
+    assertEquals("z", PinyinHelper.toHanYuPinyinInitials("重", null, true));
+    assertEquals("lv", PinyinHelper.toHanYuPinyinInitials("绿v", null, true));
+    assertEquals("l", PinyinHelper.toHanYuPinyinInitials("绿v", null, false));
+    assertEquals("", PinyinHelper.toHanYuPinyinInitials("", null, true));
+
+    String text = "吸血鬼日记重庆长城银行行长";
+    StringBuilder out = new StringBuilder("<");
+    PinyinHelper.toHanYuPinyinInitials(text, 5, 4, null, false, out);
+    assertEquals("<cqzc", out.toString());
+    assertEquals("xxgrjcqzcyhxz", PinyinHelper.toHanYuPinyinInitials(text, null, false));
+
+    assertEquals("zc", PinyinHelper.getHanyuPinyinInitials('重', null));
+    assertEquals("J", PinyinHelper.getHanyuPinyinInitials('间', HanyuPinyinCaseType.UPPERCASE));
+    assertEquals("", PinyinHelper.getHanyuPinyinInitials('A', null));
+  }
+
+  public void testToHanYuPinyinReadings() throws Exception {
+    HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+    List<String> readings = toList(PinyinHelper.toHanYuPinyinReadings("长行", outputFormat, " ", true, 100));
+    assertEquals(PinyinHelper.toHanYuPinyinString("长行", outputFormat, " ", true), readings.get(0));
+    assertEquals(PinyinHelper.toHanyuPinyinStringArray('长').length
+        * PinyinHelper.toHanyuPinyinStringArray('行').length, readings.size());
+    assertEquals(readings.size(), new HashSet<String>(readings).size());
+    assertTrue(readings.contains("chang2hang2"));
+
+    // equal readings without tones are returned once
+    outputFormat.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+    readings = toList(PinyinHelper.toHanYuPinyinReadings("长行", outputFormat, " ", true, 100));
+    assertEquals(readings.size(), new HashSet<String>(readings).size());
+    assertTrue(readings.contains("changhang"));
+    assertTrue(readings.size() < PinyinHelper.toHanyuPinyinStringArray('长').length
+        * PinyinHelper.toHanyuPinyinStringArray('行').length);
+
+    // the reading of the phrase first
+    outputFormat = new HanyuPinyinOutputFormat();
+    readings = toList(PinyinHelper.toHanYuPinyinReadings("A重庆", outputFormat, ",", true, 3));
+    assertEquals(Arrays.asList("Achong2,qing4", "Azhong4,qing4"), readings);
+    readings = toList(PinyinHelper.toHanYuPinyinReadings("长行", outputFormat, ",", true, 3));
+    assertEquals(Arrays.asList("zhang3xing2", "zhang3hang2", "zhang3hang4"), readings);
+    readings = toList(PinyinHelper.toHanYuPinyinReadings("A重庆", outputFormat, ",", false, 1));
+    assertEquals(Arrays.asList("chong2,qing4"), readings);
+
+    assertEquals(Arrays.asList(""), toList(PinyinHelper.toHanYuPinyinReadings("", outputFormat, ",",
+        true, 3)));
+
+    // long input with many polyphonic characters
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      text.append("长行");
+    }
+    Iterator<String> iterator =
+        PinyinHelper.toHanYuPinyinReadings(text.toString(), outputFormat, "", true, 5);
+    assertEquals(5, toList(iterator).size());
+    try {
+      iterator.next();
+      fail();
+    } catch (NoSuchElementException e) {
+      // expected
+    }
+  }
+
+  private static List<String> toList(Iterator<String> iterator) {
+    List<String> list = new ArrayList<String>();
+    while (iterator.hasNext()) {
+      list.add(iterator.next());
+    }
+    return list;
+  }
+
+  public void testToHanYuPinyinLattice() throws Exception {
+    HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+    PinyinLattice lattice = PinyinHelper.toHanYuPinyinLattice("A重庆", outputFormat);
+    assertEquals(3, lattice.length());
+    assertEquals(0, lattice.getFirstArc(1));
+    assertEquals(3, lattice.getFirstArc(2));
+    // the phrase first
+    assertEquals(1, lattice.getStart(0));
+    assertEquals(3, lattice.getEnd(0));
+    assertTrue(lattice.isPreferred(0));
+    assertEquals(2, lattice.getSyllableCount(0));
+    assertEquals("chong2", lattice.getSyllable(0, 0));
+    assertEquals("qing4", lattice.getSyllable(0, 1));
+    // then the readings of the character
+    assertEquals(2, lattice.getEnd(1));
+    assertFalse(lattice.isPreferred(1));
+    assertEquals("zhong4", lattice.getSyllable(1, 0));
+    assertEquals("chong2", lattice.getSyllable(2, 0));
+    assertEquals("qing4", lattice.getSyllable(3, 0));
+    assertEquals(4, lattice.getArcCount());
+
+    // the preferred arcs are the conversion of the text
+    // with a character without pronounciation, read "none0"
+    String text = "吸血鬼日记，重庆长城\u4E06银行行长\uD840\uDC00长";
+    lattice = PinyinHelper.toHanYuPinyinLattice(text, outputFormat);
+    StringBuilder preferred = new StringBuilder();
+    for (int position = 0; position < lattice.length();) {
+      int next = position + 1;
+      for (int arc = lattice.getFirstArc(position); arc < lattice.getFirstArc(position + 1); arc++) {
+        if (lattice.isPreferred(arc)) {
+          for (int i = 0; i < lattice.getSyllableCount(arc); i++) {
+            preferred.append(lattice.getSyllable(arc, i));
+          }
+          next = lattice.getEnd(arc);
+        }
+      }
+      position = next;
+    }
+    assertEquals(PinyinHelper.toHanYuPinyinString(text, outputFormat, "", false), preferred.toString());
+    assertTrue(preferred.indexOf("none0") > 0);
+
+    assertEquals(0, PinyinHelper.toHanYuPinyinLattice("", outputFormat).getArcCount());
+    try {
+      lattice.getStart(lattice.getArcCount());
+      fail();
+    } catch (IndexOutOfBoundsException e) {
+      // expected
+    }
+  }
+
+  public void testPreload() throws Exception {
+    PinyinHelper.preload();
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      Future<Void> loaded = PinyinHelper.preloadAsync(executor);
+      assertNull(loaded.get(10, TimeUnit.SECONDS));
+      assertTrue(loaded.isDone());
+      assertFalse(loaded.isCancelled());
+    } finally {
+      executor.shutdown();
+    }
+
+    // a single thread runs the tasks one after the other
+    ExecutorService singleThread = Executors.newSingleThreadExecutor();
+    try {
+      assertNull(PinyinHelper.preloadAsync(singleThread).get());
+    } finally {
+      singleThread.shutdown();
+    }
+  }
 }
@@ -0,0 +1,71 @@
+package net.sourceforge.pinyin4j.test;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.sourceforge.pinyin4j.PinyinHelper;
+
+public class ResourceLoadingTest extends TestCase {
+  /**
+   * Loads the library afresh and records the classes it defines
+   */
+  private static class RecordingClassLoader extends URLClassLoader {
+    final List<String> loaded = new ArrayList<String>();
+
+    RecordingClassLoader() {
+      super(new URL[] {PinyinHelper.class.getProtectionDomain().getCodeSource().getLocation()},
+          null);
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+      Class<?> c = super.findClass(name);
+      synchronized (loaded) {
+        loaded.add(name);
+      }
+      return c;
+    }
+
+    boolean hasLoaded(String prefix) {
+      synchronized (loaded) {
+        for (String name : loaded) {
+          if (name.startsWith(prefix)) return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  public void testHanyuPinyinSkipsXmlParser() throws Exception {
+    RecordingClassLoader loader = new RecordingClassLoader();
+    Class<?> helper = loader.loadClass(PinyinHelper.class.getName());
+    Method toHanyuPinyinStringArray = helper.getMethod("toHanyuPinyinStringArray", char.class);
+    assertEquals("zhong1", ((String[]) toHanyuPinyinStringArray.invoke(null, '中'))[0]);
+
+    assertFalse(loader.hasLoaded("com.hp.hpl.sparta."));
+    assertFalse(loader.hasLoaded("net.sourceforge.pinyin4j.PinyinRomanizationResource"));
+    assertFalse(loader.hasLoaded("net.sourceforge.pinyin4j.GwoyeuRomatzyhResource"));
+  }
+
+  public void testRomanizationLoadsOnDemand() throws Exception {
+    RecordingClassLoader loader = new RecordingClassLoader();
+    Class<?> helper = loader.loadClass(PinyinHelper.class.getName());
+    Method toWadeGilesPinyinStringArray =
+        helper.getMethod("toWadeGilesPinyinStringArray", char.class);
+    assertEquals("chung1", ((String[]) toWadeGilesPinyinStringArray.invoke(null, '中'))[0]);
+    assertTrue(loader.hasLoaded("net.sourceforge.pinyin4j.PinyinRomanizationResource"));
+    assertFalse(loader.hasLoaded("net.sourceforge.pinyin4j.GwoyeuRomatzyhResource"));
+
+    Method toGwoyeuRomatzyhStringArray =
+        helper.getMethod("toGwoyeuRomatzyhStringArray", char.class);
+    assertEquals("jong", ((String[]) toGwoyeuRomatzyhStringArray.invoke(null, '中'))[0]);
+    assertTrue(loader.hasLoaded("net.sourceforge.pinyin4j.GwoyeuRomatzyhResource"));
+
+    // the tables are compiled at build time, the XML parser is not needed
+    assertFalse(loader.hasLoaded("com.hp.hpl.sparta."));
+  }
+}
@@ -0,0 +1,208 @@
+package net.sourceforge.pinyin4j.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import net.sourceforge.pinyin4j.CountingPinyinMetrics;
+import net.sourceforge.pinyin4j.LruPinyinCache;
+import net.sourceforge.pinyin4j.PinyinConverter;
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.multipinyin.MultiPinyinConfig;
+
+public class UserDictionaryTest extends TestCase {
+  private File file;
+
+  @Override
+  protected void setUp() throws Exception {
+    file = File.createTempFile("multi_pinyin", ".txt");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    MultiPinyinConfig.multiPinyinPath = null;
+    PinyinHelper.reloadUserDictionary();
+    PinyinHelper.setCache(null);
+    PinyinHelper.setMetrics(null);
+    file.delete();
+  }
+
+  /**
+   * User files are read in the platform encoding, which may not be able to
+   * encode Chinese characters
+   */
+  private static boolean canWriteUserFile() {
+    return Charset.defaultCharset().newEncoder().canEncode("重庆");
+  }
+
+  /**
+   * Replace the user file by a rename, as it should be when watched
+   */
+  private void writeUserFile(String content) throws IOException {
+    File temporaryFile = new File(file.getPath() + ".tmp");
+    Writer writer = new OutputStreamWriter(new FileOutputStream(temporaryFile));
+    try {
+      writer.write(content);
+    } finally {
+      writer.close();
+    }
+    // modification times may be as coarse as seconds
+    temporaryFile.setLastModified(file.lastModified() + 2000);
+    file.delete();
+    assertTrue(temporaryFile.renameTo(file));
+  }
+
+  public void testReloadUserDictionary() throws Exception {
+    if (!canWriteUserFile()) return;
+
+    HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+    LruPinyinCache cache = new LruPinyinCache(100);
+    PinyinHelper.setCache(cache);
+    assertEquals("chong2 qing4", PinyinHelper.toHanYuPinyinString("重庆", outputFormat, " ", true));
+
+    writeUserFile("重庆 (zhong4,qing4)\n");
+    MultiPinyinConfig.multiPinyinPath = file.getPath();
+    StringBuilder out = new StringBuilder();
+    PinyinConverter converter = new PinyinConverter(outputFormat, " ", true, out);
+    PinyinHelper.reloadUserDictionary();
+    // not the cached result of the previous phrases
+    assertEquals("zhong4 qing4", PinyinHelper.toHanYuPinyinString("重庆", outputFormat, " ", true));
+    assertEquals(0, cache.getHitCount());
+
+    // a converter keeps the phrases it has been created with
+    converter.feed("重庆");
+    converter.finish();
+    assertEquals("chong2 qing4", out.toString());
+
+    writeUserFile("重庆 (chong2,qing4)\n");
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      PinyinHelper.reloadUserDictionaryAsync(executor).get(10, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals("chong2 qing4", PinyinHelper.toHanYuPinyinString("重庆", outputFormat, " ", true));
+
+    MultiPinyinConfig.multiPinyinPath = null;
+    PinyinHelper.reloadUserDictionary();
+    assertEquals("chong2 qing4", PinyinHelper.toHanYuPinyinString("重庆", outputFormat, " ", true));
+  }
+
+  public void testMalformedUserDictionary() throws Exception {
+    if (!canWriteUserFile()) return;
+
+    String[] readings = PinyinHelper.toHanyuPinyinStringArray('重');
+    String[] gwoyeuRomatzyh = PinyinHelper.toGwoyeuRomatzyhStringArray('中');
+    writeUserFile("你好 (ni3,,hao3)\n重 ()\n");
+    MultiPinyinConfig.multiPinyinPath = file.getPath();
+    PinyinHelper.reloadUserDictionary();
+    // empty readings are left out, and a record without any is ignored
+    assertEquals("ni3 hao3", PinyinHelper.toHanYuPinyinString("你好",
+        new HanyuPinyinOutputFormat(), " ", true));
+    assertTrue(Arrays.equals(readings, PinyinHelper.toHanyuPinyinStringArray('重')));
+
+    // other characters are still romanized
+    assertTrue(Arrays.equals(new String[] {"jhong1", "jhong4"},
+        PinyinHelper.toTongyongPinyinStringArray('中')));
+    assertTrue(Arrays.equals(gwoyeuRomatzyh, PinyinHelper.toGwoyeuRomatzyhStringArray('中')));
+  }
+
+  public void testSupplementaryCharacter() throws Exception {
+    if (!canWriteUserFile()) return;
+
+    HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+    // U+20000, the first character of CJK Unified Ideographs Extension B
+    writeUserFile("\uD840\uDC00 (ke1)\n");
+    MultiPinyinConfig.multiPinyinPath = file.getPath();
+    PinyinHelper.reloadUserDictionary();
+    assertTrue(Arrays.equals(new String[] {"ke1"}, PinyinHelper.toHanyuPinyinStringArray(0x20000)));
+    assertNull(PinyinHelper.toHanyuPinyinStringArray(0x20001));
+    assertEquals("jian1 ke1 li3",
+        PinyinHelper.toHanYuPinyinString("间\uD840\uDC00李", outputFormat, " ", true));
+    assertEquals("jian1 \uD840\uDC01li3",
+        PinyinHelper.toHanYuPinyinString("间\uD840\uDC01李", outputFormat, " ", true));
+  }
+
+  public void testWatchUserDictionary() throws Exception {
+    if (!canWriteUserFile()) return;
+
+    HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+    writeUserFile("重庆 (zhong4,qing4)\n");
+    MultiPinyinConfig.multiPinyinPath = file.getPath();
+    PinyinHelper.reloadUserDictionary();
+
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    try {
+      ScheduledFuture<?> watch =
+          PinyinHelper.watchUserDictionary(executor, 10, TimeUnit.MILLISECONDS);
+      writeUserFile("重庆 (zhong4,qing4)\n银行 (yin2,xing2)\n");
+      long deadline = System.currentTimeMillis() + 10000;
+      while (!"yin2 xing2".equals(PinyinHelper.toHanYuPinyinString("银行", outputFormat, " ",
+          true))) {
+        assertTrue(System.currentTimeMillis() < deadline);
+        Thread.sleep(10);
+      }
+      assertEquals("zhong4 qing4", PinyinHelper.toHanYuPinyinString("重庆", outputFormat, " ",
+          true));
+
+      watch.cancel(false);
+      assertTrue(watch.isCancelled());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  public void testWatchMalformedUserDictionary() throws Exception {
+    if (!canWriteUserFile()) return;
+
+    HanyuPinyinOutputFormat outputFormat = new HanyuPinyinOutputFormat();
+    writeUserFile("重庆 (zhong4,qing4)\n");
+    MultiPinyinConfig.multiPinyinPath = file.getPath();
+    PinyinHelper.reloadUserDictionary();
+    CountingPinyinMetrics metrics = new CountingPinyinMetrics();
+    PinyinHelper.setMetrics(metrics);
+
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    try {
+      ScheduledFuture<?> watch =
+          PinyinHelper.watchUserDictionary(executor, 10, TimeUnit.MILLISECONDS);
+      // more distinct readings than syllables can be numbered
+      StringBuilder malformed = new StringBuilder();
+      for (int i = 0; i <= Character.MAX_VALUE; i++) {
+        malformed.append("重庆 (x").append(i).append(")\n");
+      }
+      writeUserFile(malformed.toString());
+      long deadline = System.currentTimeMillis() + 10000;
+      while (metrics.getResourceFailureCount() == 0) {
+        assertTrue(System.currentTimeMillis() < deadline);
+        Thread.sleep(10);
+      }
+      assertEquals("zhong4 qing4", PinyinHelper.toHanYuPinyinString("重庆", outputFormat, " ",
+          true));
+
+      // still watching
+      writeUserFile("重庆 (zhong4,qing4)\n银行 (yin2,xing2)\n");
+      deadline = System.currentTimeMillis() + 10000;
+      while (!"yin2 xing2".equals(PinyinHelper.toHanYuPinyinString("银行", outputFormat, " ",
+          true))) {
+        assertTrue(System.currentTimeMillis() < deadline);
+        Thread.sleep(10);
+      }
+      assertFalse(watch.isDone());
+      watch.cancel(false);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}